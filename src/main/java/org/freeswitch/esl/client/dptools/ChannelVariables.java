@@ -0,0 +1,165 @@
+package org.freeswitch.esl.client.dptools;
+
+import org.freeswitch.esl.client.internal.IModEslAsyncApi;
+import org.freeswitch.esl.client.transport.EslUrlDecoder;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A local snapshot of the variables of one channel, so that reading a variable does not cost a
+ * {@code uuid_getvar} round trip.
+ * <p/>
+ * The snapshot is taken from a single {@code uuid_dump}, or from the event that started an outbound
+ * session, and is kept current by passing the channel's events to {@link #update(EslEvent)}: the
+ * {@code variable_*} headers of every {@code CHANNEL_*} event of the channel are merged in, and a
+ * hangup invalidates the snapshot.  Only variables are kept, under their name without the
+ * {@code variable_} prefix; caller profile fields are not.
+ * <p/>
+ * A variable set by the channel is only seen once an event carrying it has been received, so a
+ * result an application has just stored should be read from its CHANNEL_EXECUTE_COMPLETE event.
+ */
+public class ChannelVariables {
+
+	private static final String VARIABLE_PREFIX = "variable_";
+
+	private final String uuid;
+	private final Map<String, String> variables = new ConcurrentHashMap<>();
+	private volatile boolean valid = true;
+
+	private ChannelVariables(String uuid) {
+		this.uuid = checkNotNull(uuid, "uuid");
+	}
+
+	/**
+	 * Take a snapshot with a single {@code uuid_dump}.
+	 *
+	 * @param api  connection to send through
+	 * @param uuid of the channel
+	 * @return future of the snapshot, failed if the channel does not exist
+	 */
+	public static CompletableFuture<ChannelVariables> fetch(IModEslAsyncApi api, final String uuid) {
+		return api.sendApiCommandAsync("uuid_dump", uuid).thenApply(response -> fromDump(uuid, response));
+	}
+
+	/**
+	 * Take a snapshot from the headers of an event of the channel, such as the one an outbound
+	 * session starts with, without any round trip.
+	 *
+	 * @param event of the channel
+	 * @return the snapshot
+	 * @throws IllegalArgumentException if the event has no Unique-ID, so belongs to no channel
+	 */
+	public static ChannelVariables fromEvent(EslEvent event) {
+		final Map<String, String> headers = event.getEventHeaders();
+		final String uuid = headers.get(EslEventHeaderNames.UNIQUE_ID);
+		checkArgument(uuid != null, "Event %s has no Unique-ID", event.getEventName());
+		final ChannelVariables snapshot = new ChannelVariables(uuid);
+		snapshot.merge(headers);
+		return snapshot;
+	}
+
+	static ChannelVariables fromDump(String uuid, EslMessage response) {
+		final ChannelVariables snapshot = new ChannelVariables(uuid);
+		for (String line : response.getBodyLines()) {
+			if (line.startsWith("-ERR")) {
+				throw new IllegalStateException(line);
+			}
+			final int colon = line.indexOf(": ");
+			if (colon > VARIABLE_PREFIX.length() && line.startsWith(VARIABLE_PREFIX)) {
+				snapshot.variables.put(line.substring(VARIABLE_PREFIX.length(), colon),
+						EslUrlDecoder.decode(line.substring(colon + 2)));
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Apply an event to the snapshot: variables of the channel's {@code CHANNEL_*} events are merged
+	 * in, and its hangup invalidates the snapshot.  Events of other channels are ignored.
+	 *
+	 * @param event any received event
+	 */
+	public void update(EslEvent event) {
+		final String eventName = event.getEventName();
+		if (eventName == null || !eventName.startsWith("CHANNEL_")
+				|| !uuid.equals(event.getEventHeaders().get(EslEventHeaderNames.UNIQUE_ID))) {
+			return;
+		}
+		if (eventName.equals("CHANNEL_HANGUP") || eventName.equals("CHANNEL_HANGUP_COMPLETE")
+				|| eventName.equals("CHANNEL_DESTROY")) {
+			invalidate();
+		} else if (valid) {
+			merge(event.getEventHeaders());
+		}
+	}
+
+	private void merge(Map<String, String> headers) {
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			if (header.getKey().startsWith(VARIABLE_PREFIX) && header.getValue() != null) {
+				variables.put(header.getKey().substring(VARIABLE_PREFIX.length()), header.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Record a variable this client has just set, once the server has accepted it.  An empty value
+	 * unsets the variable.  A value FreeSWITCH expands, with {@code ${...}} or {@code $${...}}, is
+	 * only known once an event carries it, so the variable is forgotten until then.
+	 *
+	 * @param name  of the variable
+	 * @param value as sent, may be null
+	 */
+	void put(String name, String value) {
+		if (value == null || value.isEmpty() || value.contains("${")) {
+			variables.remove(name);
+		} else if (valid) {
+			variables.put(name, value);
+		}
+	}
+
+	/**
+	 * Forget every variable, once the channel is gone.
+	 */
+	public void invalidate() {
+		valid = false;
+		variables.clear();
+	}
+
+	/**
+	 * @return false once the channel has hung up
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * @return uuid of the channel
+	 */
+	public String getUuid() {
+		return uuid;
+	}
+
+	/**
+	 * @param name of the variable, without {@code variable_} prefix
+	 * @return value of the variable, null if not set or the snapshot is no longer valid
+	 */
+	public String get(String name) {
+		return variables.get(name);
+	}
+
+	/**
+	 * @return read-only view of all the variables
+	 */
+	public Map<String, String> getAll() {
+		return Collections.unmodifiableMap(variables);
+	}
+}
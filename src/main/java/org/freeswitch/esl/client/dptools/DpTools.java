@@ -1,19 +1,159 @@
 package org.freeswitch.esl.client.dptools;
 
 import org.freeswitch.esl.client.internal.IModEslApi;
+import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class DpTools {
 
 	private final IModEslApi api;
+	private final String uuid;
 
 	public DpTools(IModEslApi api) {
+		this(api, null);
+	}
+
+	/**
+	 * @param api  connection to send through
+	 * @param uuid of the channel, required on an inbound connection
+	 */
+	public DpTools(IModEslApi api, String uuid) {
 		this.api = api;
+		this.uuid = uuid;
 	}
 
 	public DpTools answer() {
-		api.sendMessage(new SendMsg().addCallCommand("answer"));
+		api.sendMessage(newMessage().addCallCommand("answer"));
 		return this;
 	}
 
+	/**
+	 * Set several channel variables at once.  On an inbound connection, with the channel uuid, this
+	 * is a single {@code uuid_setvar_multi} api command; otherwise a single {@code multiset}
+	 * application.
+	 *
+	 * @param variables names and values of the variables
+	 * @return the response of the server
+	 */
+	public CompletableFuture<EslMessage> setVariables(Map<String, String> variables) {
+		final VariableBatch batch = new VariableBatch();
+		for (Map.Entry<String, String> variable : variables.entrySet()) {
+			batch.add(variable.getKey(), variable.getValue());
+		}
+		if (uuid != null) {
+			return api.sendApiCommandAsync("uuid_setvar_multi", uuid + " " + batch.toArgument());
+		}
+		return api.sendMessageAsync(newMessage()
+				.addCallCommand("execute")
+				.addExecuteAppName("multiset")
+				.addExecuteAppArg(batch.toArgument()))
+				.thenApply(CommandResponse::getResponse);
+	}
+
+	/**
+	 * Start a sequence of applications to send in a single write, for example:
+	 * <pre>
+	 *   dpTools.batch().answer().set("foo", "bar").playback("welcome.wav").send();
+	 * </pre>
+	 *
+	 * @return an empty batch
+	 */
+	public Batch batch() {
+		return new Batch();
+	}
+
+	private SendMsg newMessage() {
+		return uuid != null ? new SendMsg(uuid) : new SendMsg();
+	}
+
+	/**
+	 * Dialplan applications compiled into event-locked execute messages, which FreeSWITCH runs one
+	 * after the other in order.  The messages are pipelined: all of them are written and flushed
+	 * together, without waiting for each reply, so setting up a call costs about one round trip.
+	 * <p/>
+	 * Consecutive {@link #set(String, String)} calls are coalesced into one multiset application,
+	 * and so share one reply.
+	 */
+	public class Batch {
+
+		private final List<SendMsg> messages = new ArrayList<>();
+		private final VariableBatch pendingVariables = new VariableBatch();
+
+		private Batch() {
+		}
+
+		public Batch answer() {
+			return execute("answer", null);
+		}
+
+		public Batch set(String key, String value) {
+			pendingVariables.add(key, value);
+			return this;
+		}
+
+		public Batch export(String key, String value, boolean local) {
+			return execute("export", (local ? "" : "nolocal:") + key + "=" + value);
+		}
+
+		public Batch playback(String file) {
+			return execute("playback", file);
+		}
+
+		public Batch hangup(String reason) {
+			return execute("hangup", reason);
+		}
+
+		/**
+		 * @param app  name of the dialplan application
+		 * @param args arguments of the application, may be null
+		 * @return this batch
+		 */
+		public Batch execute(String app, String args) {
+			flushVariables();
+			final SendMsg msg = newMessage()
+					.addCallCommand("execute")
+					.addExecuteAppName(app);
+			if (args != null) {
+				msg.addExecuteAppArg(args);
+			}
+			messages.add(msg.addEventLock());
+			return this;
+		}
+
+		private void flushVariables() {
+			if (pendingVariables.isEmpty()) {
+				return;
+			}
+			final SendMsg msg = newMessage()
+					.addCallCommand("execute")
+					.addExecuteAppName("multiset")
+					.addExecuteAppArg(pendingVariables.toArgument());
+			pendingVariables.clear();
+			messages.add(msg.addEventLock());
+		}
+
+		/**
+		 * @return number of messages in this batch, coalesced variables counting as one
+		 */
+		public int size() {
+			return messages.size() + (pendingVariables.isEmpty() ? 0 : 1);
+		}
+
+		/**
+		 * Send every application of this batch in one write.
+		 *
+		 * @return the reply to each application's message, in the order they were added
+		 */
+		public List<CompletableFuture<CommandResponse>> send() {
+			flushVariables();
+			return api.sendMessagesAsync(messages);
+		}
+	}
+
 }
@@ -1,5 +1,7 @@
 package org.freeswitch.esl.client.dptools;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import org.freeswitch.esl.client.internal.IModEslApi;
@@ -11,12 +13,87 @@ public class Execute {
 
     IModEslApi api;
     String _uuid;
+    private final VariableBatch pendingVariables = new VariableBatch();
+    // recorded in channelVariables once the multiset setting them is accepted
+    private final Map<String, String> pendingValues = new LinkedHashMap<>();
+    private boolean batchVariables;
+    private ChannelVariables channelVariables;
 
     public Execute(IModEslApi api, String uuid) {
         this.api = api;
         this._uuid = uuid;
     }
 
+    /**
+     * Serve {@link #getVariable(String)} from a local snapshot of the channel variables, which the
+     * caller keeps current with {@link ChannelVariables#update}.  Variables set through this
+     * instance are recorded in it as well, once the server has accepted them.
+     *
+     * @param channelVariables snapshot of this channel, null to always ask the server
+     */
+    public void setChannelVariables(ChannelVariables channelVariables) {
+        this.channelVariables = channelVariables;
+    }
+
+    /**
+     * Read a channel variable, from the snapshot set with
+     * {@link #setChannelVariables(ChannelVariables)} when it has it, otherwise with uuid_getvar.
+     *
+     * @param name of the variable
+     * @return value of the variable, null if not set
+     */
+    public String getVariable(String name) throws ExecuteException {
+        if (channelVariables != null && channelVariables.isValid()) {
+            String value = channelVariables.get(name);
+            if (value != null)
+                return value;
+        }
+        flushVariables();
+        EslMessage eslMessage = api.sendApiCommand("uuid_getvar", _uuid + " " + name);
+        if (eslMessage.getBodyLines().isEmpty())
+            return null;
+        String value = eslMessage.getBodyLines().get(0);
+        // uuid_getvar answers _undef_ for a variable that is not set
+        return "_undef_".equals(value) || value.startsWith("-ERR") ? null : value;
+    }
+
+    /**
+     * Buffer the variables of consecutive {@link #set(String, String)} calls and set them all with a
+     * single multiset, sent just before the next application or on {@link #flushVariables()}.  A
+     * failure to set them is then reported by that call.
+     * <p/>
+     * Api commands do not flush the buffer: call {@link #flushVariables()} before reading a
+     * buffered variable back with {@link #ApiCommand(String, String)}.
+     *
+     * @param batchVariables true to buffer, false to flush the buffer and set each variable on its own again
+     */
+    public void setVariableBatching(boolean batchVariables) throws ExecuteException {
+        if (!batchVariables) {
+            flushVariables();
+        }
+        this.batchVariables = batchVariables;
+    }
+
+    /**
+     * Set the variables buffered since the last application, if any.
+     *
+     * @see #setVariableBatching(boolean)
+     */
+    public void flushVariables() throws ExecuteException {
+        if (pendingVariables.isEmpty()) {
+            return;
+        }
+        String args = pendingVariables.toArgument();
+        Map<String, String> values = new LinkedHashMap<>(pendingValues);
+        pendingVariables.clear();
+        pendingValues.clear();
+        sendExeMesg("multiset", args);
+        if (channelVariables != null) {
+            for (Map.Entry<String, String> value : values.entrySet())
+                channelVariables.put(value.getKey(), value.getValue());
+        }
+    }
+
     /**
      * Sends an info packet with a sipfrag. If the phone supports it will show
      * message on the display.
@@ -1617,10 +1694,17 @@ public class Execute {
      * @param key
      *            channel_variable name
      * @param value
-     *            channel_variable value
+     *            channel_variable value, null or empty to unset it
      */
     public void set(String key, String value) throws ExecuteException {
-        sendExeMesg("set", key + "=" + value);
+        if (batchVariables) {
+            pendingVariables.add(key, value);
+            pendingValues.put(key, value);
+            return;
+        }
+        sendExeMesg("set", key + "=" + (value != null ? value : ""));
+        if (channelVariables != null)
+            channelVariables.put(key, value);
     }
     
     public void speak(String engine, String voice, String message) throws ExecuteException {
@@ -1691,6 +1775,8 @@ public class Execute {
 
     private CommandResponse sendExeMesg(String app, String args)
             throws ExecuteException {
+        // buffered variables are set before the application that may use them
+        flushVariables();
         SendMsg msg = new SendMsg();
         msg.addCallCommand("execute");
         msg.addExecuteAppName(app);
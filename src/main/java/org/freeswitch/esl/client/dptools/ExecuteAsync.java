@@ -0,0 +1,189 @@
+package org.freeswitch.esl.client.dptools;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.freeswitch.esl.client.internal.IModEslAsyncApi;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+
+/**
+ * Non-blocking counterpart of {@link Execute}.  Each application is sent with an Event-UUID and its
+ * future completes with the matching CHANNEL_EXECUTE_COMPLETE event, once the application has
+ * finished.  Results stored in channel variables are read from the headers of that event, so an
+ * IVR step costs a single round trip.
+ * <p/>
+ * The connection must receive the CHANNEL_EXECUTE_COMPLETE events of the channel: in outbound mode
+ * send {@code myevents}, in inbound mode subscribe to them.  A future fails if the application is
+ * refused, with the server's reply text.
+ */
+public class ExecuteAsync {
+
+    private final IModEslAsyncApi api;
+    private final String uuid;
+
+    /**
+     * @param api  connection to send through
+     * @param uuid of the channel, may be null on an outbound connection
+     */
+    public ExecuteAsync(IModEslAsyncApi api, String uuid) {
+        this.api = api;
+        this.uuid = uuid;
+    }
+
+    /**
+     * Answers an incoming call or session.
+     *
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_answer">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_answer
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> answer() {
+        return execute("answer", null);
+    }
+
+    /**
+     * Bridges to one or more endpoints, completing when the bridge ends.
+     *
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_bridge">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_bridge
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> bridge(String endpoint) {
+        return execute("bridge", endpoint);
+    }
+
+    /**
+     * Hangs up the channel.
+     *
+     * @param reason hangup cause, may be null
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_hangup">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_hangup
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> hangup(String reason) {
+        return execute("hangup", reason);
+    }
+
+    /**
+     * Plays a sound file, completing when it has been played.
+     *
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_playback">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_playback
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> playback(String file) {
+        return execute("playback", file);
+    }
+
+    /**
+     * Sets a channel variable.
+     *
+     * @param value of the variable, null unsets it as {@link Execute#set(String, String)} does
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_set">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_set
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> set(String key, String value) {
+        return execute("set", key + "=" + (value != null ? value : ""));
+    }
+
+    /**
+     * Speaks a message with the given text to speech engine and voice.
+     *
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_speak">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_speak
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> speak(String engine, String voice, String message) {
+        return execute("speak", engine + "|" + voice + "|" + message);
+    }
+
+    /**
+     * Transfers the channel to a new extension.
+     *
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_transfer">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_transfer
+     *     </a>
+     */
+    public CompletableFuture<EslEvent> transfer(String destinationNumber) {
+        return execute("transfer", destinationNumber);
+    }
+
+    /**
+     * Play a prompt and get digits.
+     *
+     * @return future of the collected digits, null if none
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_play_and_get_digits">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_play_and_get_digits
+     *     </a>
+     */
+    public CompletableFuture<String> playAndGetDigits(int min, int max, int tries, int timeout,
+            String terminator, String file, String invalidFile, String regexp,
+            int digitTimeout) {
+        final String id = UUID.randomUUID().toString();
+        return execute("play_and_get_digits",
+                String.valueOf(min)
+                        + " " + max
+                        + " " + tries
+                        + " " + timeout
+                        + " " + terminator
+                        + " " + file
+                        + " " + invalidFile
+                        + " " + id
+                        + " " + regexp
+                        + " " + digitTimeout)
+                .thenApply(event -> variable(event, id));
+    }
+
+    /**
+     * Play a sound file and read digits.
+     *
+     * @return future of the read digits, null if none
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_read">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_read
+     *     </a>
+     */
+    public CompletableFuture<String> read(int min, int max, String soundFile, long timeout,
+            String terminators) {
+        final String id = UUID.randomUUID().toString();
+        return execute("read",
+                String.valueOf(min) + " " + max + " " + soundFile + " " + id + " " + timeout + " " + terminators)
+                .thenApply(event -> variable(event, id));
+    }
+
+    /**
+     * Play while doing speech recognition.
+     *
+     * @return future of the detect_speech_result channel variable, null if not set
+     * @see <a href="http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_play_and_detect_speech">
+     *     http://wiki.freeswitch.org/wiki/Misc._Dialplan_Tools_play_and_detect_speech
+     *     </a>
+     */
+    public CompletableFuture<String> playAndDetectSpeech(String file, String engine,
+            String grammer, String params) {
+        return execute("play_and_detect_speech",
+                file + " detect:" + engine + " {" + (params != null ? params : "") + "}" + grammer)
+                .thenApply(event -> variable(event, "detect_speech_result"));
+    }
+
+    /**
+     * Executes any dialplan application.
+     *
+     * @param app  name of the application
+     * @param args arguments of the application, may be null
+     * @return future completed with the CHANNEL_EXECUTE_COMPLETE event of the application
+     */
+    public CompletableFuture<EslEvent> execute(String app, String args) {
+        SendMsg msg = uuid != null ? new SendMsg(uuid) : new SendMsg();
+        msg.addCallCommand("execute");
+        msg.addExecuteAppName(app);
+        if (args != null)
+            msg.addExecuteAppArg(args);
+        return api.executeApplicationAsync(msg);
+    }
+
+    private static String variable(EslEvent event, String name) {
+        return event.getEventHeaders().get("variable_" + name);
+    }
+}
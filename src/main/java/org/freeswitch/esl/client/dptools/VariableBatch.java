@@ -0,0 +1,72 @@
+package org.freeswitch.esl.client.dptools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Channel variables buffered to be set together, by one {@code multiset} application or one
+ * {@code uuid_setvar_multi} api command.
+ * <p/>
+ * Both take a list of {@code name=value} pairs parsed by FreeSWITCH's {@code switch_separate_string},
+ * which accepts a {@code ^^} prefix followed by a custom delimiter.  A delimiter that appears in no
+ * pair is picked, so values may contain spaces or semicolons.
+ */
+class VariableBatch {
+
+	private static final String DELIMITERS = ":|~!#%,";
+
+	private final List<String> assignments = new ArrayList<>();
+
+	/**
+	 * @param key   name of the variable
+	 * @param value of the variable, null or empty to unset it
+	 */
+	void add(String key, String value) {
+		assignments.add(key + "=" + (value != null ? value : ""));
+	}
+
+	boolean isEmpty() {
+		return assignments.isEmpty();
+	}
+
+	int size() {
+		return assignments.size();
+	}
+
+	void clear() {
+		assignments.clear();
+	}
+
+	/**
+	 * @return the buffered pairs as the argument of multiset or uuid_setvar_multi
+	 * @throws IllegalStateException if every candidate delimiter is used by some pair
+	 */
+	String toArgument() {
+		final char delimiter = pickDelimiter();
+		final StringBuilder sb = new StringBuilder("^^").append(delimiter);
+		for (int i = 0; i < assignments.size(); i++) {
+			if (i > 0) {
+				sb.append(delimiter);
+			}
+			sb.append(assignments.get(i));
+		}
+		return sb.toString();
+	}
+
+	private char pickDelimiter() {
+		for (int i = 0; i < DELIMITERS.length(); i++) {
+			final char candidate = DELIMITERS.charAt(i);
+			boolean used = false;
+			for (String assignment : assignments) {
+				if (assignment.indexOf(candidate) >= 0) {
+					used = true;
+					break;
+				}
+			}
+			if (!used) {
+				return candidate;
+			}
+		}
+		throw new IllegalStateException("No free delimiter to set " + assignments.size() + " variables at once");
+	}
+}
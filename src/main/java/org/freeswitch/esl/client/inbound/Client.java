@@ -16,27 +16,42 @@
 package org.freeswitch.esl.client.inbound;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import org.freeswitch.esl.client.internal.BackgroundJobRegistry;
 import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.internal.EventDispatchQueue;
+import org.freeswitch.esl.client.internal.EventDispatchQueue.OverflowPolicy;
 import org.freeswitch.esl.client.internal.IModEslApi;
+import org.freeswitch.esl.client.internal.RingBufferDispatcher;
+import org.freeswitch.esl.client.internal.RingBufferDispatcher.WaitStrategy;
+import org.freeswitch.esl.client.internal.StripedExecutor;
+import org.freeswitch.esl.client.internal.VirtualThreads;
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.SendMsg;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.freeswitch.esl.client.transport.event.EventRoutingHeaders;
 import org.freeswitch.esl.client.transport.message.EslMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * Entry point to connect to a running FreeSWITCH Event Socket Library module, as a client.
@@ -50,15 +65,31 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class Client implements IModEslApi {
 
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
-	private final List<IEslEventListener> eventListeners = new CopyOnWriteArrayList<>();
+	private final EventListenerRegistry eventListeners = new EventListenerRegistry();
 	private final AtomicBoolean authenticatorResponded = new AtomicBoolean(false);
-	private final ConcurrentHashMap<String, CompletableFuture<EslEvent>> backgroundJobs =
-			new ConcurrentHashMap<>();
 
 	private boolean authenticated;
 	private CommandResponse authenticationResponse;
 	private Optional<Context> clientContext = Optional.empty();
-	private ExecutorService callbackExecutor = Executors.newSingleThreadExecutor();
+	private int eventDispatchLanes = Runtime.getRuntime().availableProcessors();
+	// creates the callback executor again after a close(), null if the executor belongs to the caller
+	private Supplier<ExecutorService> callbackExecutorFactory = () -> Executors.newFixedThreadPool(eventDispatchLanes);
+	private ExecutorService callbackExecutor = callbackExecutorFactory.get();
+	private volatile StripedExecutor eventDispatcher = new StripedExecutor(eventDispatchLanes, callbackExecutor);
+	private volatile EventDispatchQueue eventQueue = EventDispatchQueue.unbounded();
+	private int ringBufferSize = 0;
+	private int ringBufferConsumers;
+	private WaitStrategy ringBufferWaitStrategy;
+	private volatile RingBufferDispatcher<EventSlot> ringDispatcher;
+	private EventLoopGroup workerGroup;
+	private boolean lazyEventParsing = false;
+	private int writeCoalescingMaxBatch = 0;
+	private long writeCoalescingMaxDelayMicros = 0;
+	private long defaultCommandTimeoutMillis = 0;
+	private int backgroundJobMaxOutstanding = 100_000;
+	private long backgroundJobTimeoutMillis = TimeUnit.MINUTES.toMillis(10);
+	private boolean backgroundJobAutoSubscribe = true;
+	private volatile BackgroundJobRegistry backgroundJobs;
 
 	public void addEventListener(IEslEventListener listener) {
 		if (listener != null) {
@@ -66,6 +97,40 @@ public class Client implements IModEslApi {
 		}
 	}
 
+	/**
+	 * Add a listener that is only notified of the events with the given name.  The server still
+	 * only sends the events set with {@link #setEventSubscriptions(EventFormat, String)}.
+	 *
+	 * @param eventName name of the events, for example {@code CHANNEL_ANSWER}
+	 * @param listener  to notify
+	 */
+	public void addEventListener(String eventName, IEslEventListener listener) {
+		if (listener != null) {
+			eventListeners.addForEventName(eventName, listener);
+		}
+	}
+
+	/**
+	 * Add a listener that is only notified of the {@code CUSTOM} events of the given subclass.
+	 *
+	 * @param subclass of the events, for example {@code sofia::register}
+	 * @param listener to notify
+	 */
+	public void addCustomEventListener(String subclass, IEslEventListener listener) {
+		if (listener != null) {
+			eventListeners.addForSubclass(subclass, listener);
+		}
+	}
+
+	/**
+	 * Remove every registration of a listener.
+	 *
+	 * @param listener to remove
+	 */
+	public void removeEventListener(IEslEventListener listener) {
+		eventListeners.remove(listener);
+	}
+
 	@Override
 	public boolean canSend() {
 		return clientContext.isPresent()
@@ -84,8 +149,166 @@ public class Client implements IModEslApi {
 		}
 	}
 
+	/**
+	 * Set the executor that runs the event listener callbacks.  Events are still dispatched through
+	 * the serial lanes configured with {@link #setEventDispatchLanes(int)}, so the executor only needs
+	 * as many threads as there are lanes to run them all in parallel.  The executor belongs to the
+	 * caller and is left running by {@link #close()}.
+	 *
+	 * @param callbackExecutor runs the listener callbacks
+	 */
 	public void setCallbackExecutor(ExecutorService callbackExecutor) {
+		installCallbackExecutor(callbackExecutor, null);
+	}
+
+	private void installCallbackExecutor(ExecutorService callbackExecutor, Supplier<ExecutorService> factory) {
+		if (callbackExecutorFactory != null) {
+			this.callbackExecutor.shutdown();
+		}
 		this.callbackExecutor = callbackExecutor;
+		this.callbackExecutorFactory = factory;
+		this.eventDispatcher = new StripedExecutor(eventDispatchLanes, callbackExecutor);
+	}
+
+	/**
+	 * Run the event listener callbacks on virtual threads, so that listeners may block on commands
+	 * without holding a platform thread.  Events are still dispatched through the serial lanes
+	 * configured with {@link #setEventDispatchLanes(int)}, one blocked listener holding up its lane,
+	 * so raise the number of lanes to let more listeners block at once.
+	 *
+	 * @throws UnsupportedOperationException if the JVM is older than Java 21
+	 */
+	public void useVirtualThreads() {
+		final Supplier<ExecutorService> factory = () -> VirtualThreads.newThreadPerTaskExecutor("esl-inbound-callback-");
+		installCallbackExecutor(factory.get(), factory);
+	}
+
+	/**
+	 * Set the number of serial lanes events are dispatched on.  All events of a call (same
+	 * {@code Unique-ID}) or of a background job (same {@code Job-UUID}) go through the same lane, and
+	 * other events are laned by {@code Event-Name}, so each of these streams reaches the listeners in
+	 * order while unrelated ones are handled in parallel.  Defaults to the number of processors.
+	 * <p/>
+	 * Changing the lanes of a connected client could reorder the events of a call, so it must be done
+	 * before {@link #connect} or after {@link #close()}.  The default callback pool, which has one
+	 * thread per lane, is rebuilt to the new size.
+	 *
+	 * @param lanes number of lanes, 1 to dispatch every event in order
+	 * @throws IllegalStateException if the client is connected
+	 */
+	public void setEventDispatchLanes(int lanes) {
+		checkArgument(lanes > 0, "lanes must be positive");
+		if (canSend()) {
+			throw new IllegalStateException("Cannot change the event dispatch lanes while connected");
+		}
+		this.eventDispatchLanes = lanes;
+		if (callbackExecutorFactory != null) {
+			installCallbackExecutor(callbackExecutorFactory.get(), callbackExecutorFactory);
+		} else {
+			this.eventDispatcher = new StripedExecutor(lanes, callbackExecutor);
+		}
+	}
+
+	/**
+	 * Bound the number of received events waiting for (or running in) the listener callbacks.  By
+	 * default the queue is unbounded.
+	 *
+	 * @param capacity     high watermark, the number of pending events at which the policy applies
+	 * @param lowWatermark number of pending events at which reading resumes, for {@link OverflowPolicy#BLOCK}
+	 * @param policy       what to do with events received while the queue is full
+	 */
+	public void setEventQueueBound(int capacity, int lowWatermark, OverflowPolicy policy) {
+		this.eventQueue = new EventDispatchQueue(capacity, lowWatermark, policy);
+	}
+
+	/**
+	 * @return the queue of received events, to monitor its depth
+	 */
+	public EventDispatchQueue getEventDispatchQueue() {
+		return eventQueue;
+	}
+
+	/**
+	 * Dispatch events through a preallocated ring buffer read by dedicated consumer threads, instead
+	 * of handing a task per event to the callback executor.  Events of the same call are still
+	 * handled in order, by the same consumer.  A full ring makes the IO thread wait for the consumers,
+	 * so the event queue bound does not apply.  Takes effect on the next
+	 * {@link #connect(SocketAddress, String, int)}, and the consumer threads stop on {@link #close()}.
+	 *
+	 * @param size         number of slots, a power of two, 0 to use the callback executor
+	 * @param consumers    number of consumer threads
+	 * @param waitStrategy how idle consumers wait for events
+	 */
+	public void setRingBufferDispatch(int size, int consumers, WaitStrategy waitStrategy) {
+		this.ringBufferSize = size;
+		this.ringBufferConsumers = consumers;
+		this.ringBufferWaitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Parse the headers of received events on demand rather than up front. Takes effect on the
+	 * next {@link #connect(SocketAddress, String, int)}.
+	 *
+	 * @param lazyEventParsing true to only decode the event header values that listeners read
+	 */
+	public void setLazyEventParsing(boolean lazyEventParsing) {
+		this.lazyEventParsing = lazyEventParsing;
+	}
+
+	/**
+	 * Opt in to batching commands issued in the same IO tick into a single flush. Takes effect on the
+	 * next {@link #connect(SocketAddress, String, int)}.
+	 *
+	 * @param maxBatch maximum number of commands written before a flush is forced, 0 to disable
+	 * @param maxDelay maximum time a command may wait to be flushed, 0 to flush at the end of the tick
+	 * @param unit     of maxDelay
+	 */
+	public void setWriteCoalescing(int maxBatch, long maxDelay, TimeUnit unit) {
+		this.writeCoalescingMaxBatch = maxBatch;
+		this.writeCoalescingMaxDelayMicros = unit.toMicros(maxDelay);
+	}
+
+	/**
+	 * Deadline for the response to every command sent without an explicit timeout, after which the
+	 * blocking calls throw and the returned futures fail with a {@link java.util.concurrent.TimeoutException}.
+	 * Takes effect on the next {@link #connect(SocketAddress, String, int)}.
+	 *
+	 * @param timeout default deadline, 0 for none
+	 * @param unit    of timeout
+	 */
+	public void setDefaultCommandTimeout(long timeout, TimeUnit unit) {
+		this.defaultCommandTimeoutMillis = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Bound the background api jobs waiting for their BACKGROUND_JOB event, by default at most
+	 * 100000 jobs for at most 10 minutes each.  Takes effect on the next
+	 * {@link #connect(SocketAddress, String, int)}.
+	 *
+	 * @param maxOutstanding maximum number of outstanding jobs, further jobs fail straight away
+	 * @param timeout        default time a job may wait for its event, 0 for no deadline
+	 * @param unit           of timeout
+	 */
+	public void setBackgroundJobLimits(int maxOutstanding, long timeout, TimeUnit unit) {
+		this.backgroundJobMaxOutstanding = maxOutstanding;
+		this.backgroundJobTimeoutMillis = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Subscribe to BACKGROUND_JOB events when the first background api command is sent, on by
+	 * default.  Takes effect on the next {@link #connect(SocketAddress, String, int)}.
+	 *
+	 * @param autoSubscribe false if the application manages the subscription itself
+	 */
+	public void setBackgroundJobAutoSubscribe(boolean autoSubscribe) {
+		this.backgroundJobAutoSubscribe = autoSubscribe;
+	}
+
+	/**
+	 * @return the background jobs of the current connection, null if never connected
+	 */
+	public BackgroundJobRegistry getBackgroundJobs() {
+		return backgroundJobs;
 	}
 
 	/**
@@ -111,10 +334,23 @@ public class Client implements IModEslApi {
 		Bootstrap bootstrap = new Bootstrap()
 				.group(workerGroup)
 				.channel(NioSocketChannel.class)
-				.option(ChannelOption.SO_KEEPALIVE, true);
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+
+		if (callbackExecutor.isShutdown() && callbackExecutorFactory != null) {
+			// stopped by the previous close()
+			installCallbackExecutor(callbackExecutorFactory.get(), callbackExecutorFactory);
+		}
+		startRingDispatcher();
 
 		// Add ESL handler and factory
 		InboundClientHandler handler = new InboundClientHandler(password, protocolListener);
+		handler.setLazyEventParsing(lazyEventParsing);
+		handler.setWriteCoalescing(writeCoalescingMaxBatch, writeCoalescingMaxDelayMicros, TimeUnit.MICROSECONDS);
+		handler.setDefaultCommandTimeout(defaultCommandTimeoutMillis, TimeUnit.MILLISECONDS);
+		handler.setBackgroundJobLimits(backgroundJobMaxOutstanding, backgroundJobTimeoutMillis, TimeUnit.MILLISECONDS);
+		handler.setBackgroundJobAutoSubscribe(backgroundJobAutoSubscribe);
+		this.backgroundJobs = handler.getBackgroundJobs();
 		bootstrap.handler(new InboundChannelInitializer(handler));
 
 		// Attempt connection
@@ -137,6 +373,7 @@ public class Client implements IModEslApi {
 		}
 
 		log.info("Connected to {}", clientAddress);
+		this.workerGroup = workerGroup;
 
 		//  Wait for the authentication handshake to call back
 		while (!authenticatorResponded.get()) {
@@ -172,6 +409,46 @@ public class Client implements IModEslApi {
 		return clientContext.get().sendApiCommand(command, arg);
 	}
 
+	/**
+	 * Sends a FreeSWITCH API command to the server without waiting for the response, so that many
+	 * commands can be in flight at once.  The future completes on the connection's event loop.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @return a {@link CompletableFuture} completed with the command results
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommandAsync(String command, String arg) {
+		checkConnected();
+		return clientContext.get().sendApiCommandAsync(command, arg);
+	}
+
+	/**
+	 * Sends a mod_event_socket command to the server without waiting for the response.
+	 *
+	 * @param command a mod_event_socket command to send
+	 * @return a {@link CompletableFuture} completed with the command results
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendCommandAsync(String command) {
+		checkConnected();
+		return clientContext.get().sendCommandAsync(command);
+	}
+
+	/**
+	 * As {@link #sendApiCommand(String, String)}, giving up after the supplied timeout.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout how long to wait for the response
+	 * @param unit    of timeout
+	 * @return an {@link EslMessage} containing command results
+	 */
+	public EslMessage sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
+		checkConnected();
+		return clientContext.get().sendApiCommand(command, arg, timeout, unit);
+	}
+
 	/**
 	 * Submit a FreeSWITCH API command to the server to be executed in background mode. A synchronous
 	 * response from the server provides a UUID to identify the job execution results. When the server
@@ -288,6 +565,56 @@ public class Client implements IModEslApi {
 		return clientContext.get().sendMessage(sendMsg);
 	}
 
+	/**
+	 * Send a {@link SendMsg} command to FreeSWITCH without waiting for the response.
+	 *
+	 * @param sendMsg a {@link SendMsg} with call UUID
+	 * @return a {@link CompletableFuture} completed with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> sendMessageAsync(SendMsg sendMsg) {
+		checkConnected();
+		return clientContext.get().sendMessageAsync(sendMsg);
+	}
+
+	/**
+	 * Send several {@link SendMsg} commands in one write, without waiting for any response in between.
+	 *
+	 * @param sendMsgs messages with call UUID, in order
+	 * @return a {@link CompletableFuture} of each message's response, in the same order
+	 */
+	@Override
+	public List<CompletableFuture<CommandResponse>> sendMessagesAsync(List<SendMsg> sendMsgs) {
+		checkConnected();
+		return clientContext.get().sendMessagesAsync(sendMsgs);
+	}
+
+	/**
+	 * Execute a dialplan application with a {@link SendMsg}, completing once the application has
+	 * finished.  This client must be subscribed to CHANNEL_EXECUTE_COMPLETE events.
+	 *
+	 * @param sendMsg an execute {@link SendMsg} with call UUID
+	 * @return a {@link CompletableFuture} completed with the CHANNEL_EXECUTE_COMPLETE event
+	 */
+	@Override
+	public CompletableFuture<EslEvent> executeApplicationAsync(SendMsg sendMsg) {
+		checkConnected();
+		return clientContext.get().executeApplicationAsync(sendMsg);
+	}
+
+	/**
+	 * As {@link #sendMessage(SendMsg)}, giving up after the supplied timeout.
+	 *
+	 * @param sendMsg a {@link SendMsg} with call UUID
+	 * @param timeout how long to wait for the response
+	 * @param unit    of timeout
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	public CommandResponse sendMessage(SendMsg sendMsg, long timeout, TimeUnit unit) {
+		checkConnected();
+		return clientContext.get().sendMessage(sendMsg, timeout, unit);
+	}
+
 	/**
 	 * Enable log output.
 	 *
@@ -312,7 +639,9 @@ public class Client implements IModEslApi {
 	}
 
 	/**
-	 * Close the socket connection
+	 * Close the socket connection, and stop the threads of the connection even if the server does
+	 * not answer the exit command.  A callback executor set with
+	 * {@link #setCallbackExecutor(ExecutorService)} is left running.
 	 *
 	 * @return a {@link CommandResponse} with the server's response.
 	 */
@@ -327,9 +656,18 @@ public class Client implements IModEslApi {
 			}
 		} catch (Throwable t) {
 			throw Throwables.propagate(t);
+		} finally {
+			haltRingDispatcher();
+			if (workerGroup != null) {
+				// the IO threads of this connection, a new connect() starts its own
+				workerGroup.shutdownGracefully();
+				workerGroup = null;
+			}
+			if (callbackExecutorFactory != null) {
+				// the pending callbacks still run, a new connect() starts a new executor
+				callbackExecutor.shutdown();
+			}
 		}
-
-
 	}
 
 	/*
@@ -346,11 +684,26 @@ public class Client implements IModEslApi {
 		}
 
 		@Override
-		public void eventReceived(final Context ctx, final EslEvent event) {
+		public void eventReceived(final Channel channel, final Context ctx, final EslEvent event) {
 			log.debug("Event received [{}]", event);
-			for (final IEslEventListener listener : eventListeners) {
-				callbackExecutor.execute(() -> listener.onEslEvent(ctx, event));
+			final List<IEslEventListener> listeners = eventListeners.listenersFor(event);
+			if (listeners.isEmpty()) {
+				return;
 			}
+			final Object key = dispatchKey(event);
+			final RingBufferDispatcher<EventSlot> ring = ringDispatcher;
+			if (ring != null) {
+				final long sequence = ring.next();
+				ring.get(sequence).set(ctx, event, listeners);
+				ring.publish(sequence, key == null ? 0 : key.hashCode());
+			} else {
+				eventQueue.dispatch(channel, eventDispatcher.laneFor(key), () -> notifyListeners(ctx, event, listeners));
+			}
+		}
+
+		@Override
+		public boolean isEventWanted(EventRoutingHeaders routing) {
+			return !eventListeners.listenersFor(routing.getEventName(), routing.getEventSubclass()).isEmpty();
 		}
 
 		@Override
@@ -358,4 +711,62 @@ public class Client implements IModEslApi {
 			log.info("Disconnected ...");
 		}
 	};
+
+	private void notifyListeners(Context ctx, EslEvent event, List<IEslEventListener> listeners) {
+		for (final IEslEventListener listener : listeners) {
+			try {
+				listener.onEslEvent(ctx, event);
+			} catch (Throwable t) {
+				log.warn("Event listener failed on [{}]", event.getEventName(), t);
+			}
+		}
+	}
+
+	private void startRingDispatcher() {
+		haltRingDispatcher();
+		if (ringBufferSize > 0) {
+			final RingBufferDispatcher<EventSlot> ring = new RingBufferDispatcher<>(ringBufferSize, ringBufferConsumers,
+					EventSlot::new,
+					slot -> {
+						notifyListeners(slot.ctx, slot.event, slot.listeners);
+						slot.set(null, null, null);
+					},
+					ringBufferWaitStrategy,
+					new ThreadFactoryBuilder().setNameFormat("esl-event-consumer-%d").setDaemon(true).build());
+			ring.start();
+			ringDispatcher = ring;
+		}
+	}
+
+	private void haltRingDispatcher() {
+		final RingBufferDispatcher<EventSlot> ring = ringDispatcher;
+		if (ring != null) {
+			ringDispatcher = null;
+			ring.halt();
+		}
+	}
+
+	/**
+	 * Reusable slot of the ring buffer dispatcher.
+	 */
+	private static final class EventSlot {
+		private Context ctx;
+		private EslEvent event;
+		private List<IEslEventListener> listeners;
+
+		void set(Context ctx, EslEvent event, List<IEslEventListener> listeners) {
+			this.ctx = ctx;
+			this.event = event;
+			this.listeners = listeners;
+		}
+	}
+
+	private static Object dispatchKey(EslEvent event) {
+		final Map<String, String> headers = event.getEventHeaders();
+		String key = headers.get(EslEventHeaderNames.UNIQUE_ID);
+		if (key == null) {
+			key = headers.get(EslEventHeaderNames.JOB_UUID);
+		}
+		return key != null ? key : event.getEventName();
+	}
 }
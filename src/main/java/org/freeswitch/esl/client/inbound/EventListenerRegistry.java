@@ -0,0 +1,140 @@
+package org.freeswitch.esl.client.inbound;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * Listeners of the inbound {@link Client}, registered for all events, for given event names, or for
+ * given {@code CUSTOM} event subclasses.
+ * <p/>
+ * Registrations are rare and events are many, so every registration rebuilds an immutable routing
+ * table that already merges the global listeners into the listeners of each event name and
+ * subclass.  Finding the listeners of an event is then one or two hash lookups, without locking
+ * or allocating.
+ */
+class EventListenerRegistry {
+
+	private static final String CUSTOM = "CUSTOM";
+
+	private final Set<IEslEventListener> global = new LinkedHashSet<>();
+	private final Map<String, Set<IEslEventListener>> byEventName = new HashMap<>();
+	private final Map<String, Set<IEslEventListener>> bySubclass = new HashMap<>();
+
+	private volatile Routes routes = new Routes(ImmutableList.<IEslEventListener>of(),
+			ImmutableMap.<String, List<IEslEventListener>>of(), ImmutableMap.<String, List<IEslEventListener>>of());
+
+	synchronized void add(IEslEventListener listener) {
+		global.add(listener);
+		rebuild();
+	}
+
+	synchronized void addForEventName(String eventName, IEslEventListener listener) {
+		checkArgument(!isNullOrEmpty(eventName), "eventName cannot be null or empty");
+		register(byEventName, eventName, listener);
+	}
+
+	synchronized void addForSubclass(String subclass, IEslEventListener listener) {
+		checkArgument(!isNullOrEmpty(subclass), "subclass cannot be null or empty");
+		register(bySubclass, subclass, listener);
+	}
+
+	synchronized void remove(IEslEventListener listener) {
+		global.remove(listener);
+		for (Set<IEslEventListener> listeners : byEventName.values()) {
+			listeners.remove(listener);
+		}
+		for (Set<IEslEventListener> listeners : bySubclass.values()) {
+			listeners.remove(listener);
+		}
+		rebuild();
+	}
+
+	/**
+	 * @param event received from the server
+	 * @return the listeners interested in the event, in registration order, empty if none
+	 */
+	List<IEslEventListener> listenersFor(EslEvent event) {
+		final String eventName = event.getEventName();
+		final String subclass = CUSTOM.equals(eventName) ? event.getEventHeaders().get(EslEventHeaderNames.EVENT_SUBCLASS) : null;
+		return routes.lookup(eventName, subclass);
+	}
+
+	/**
+	 * @param eventName of the event, may be null
+	 * @param subclass  of a {@code CUSTOM} event, may be null
+	 * @return the listeners interested in such an event, in registration order, empty if none
+	 */
+	List<IEslEventListener> listenersFor(String eventName, String subclass) {
+		return routes.lookup(eventName, subclass);
+	}
+
+	private void register(Map<String, Set<IEslEventListener>> index, String key, IEslEventListener listener) {
+		Set<IEslEventListener> listeners = index.get(key);
+		if (listeners == null) {
+			listeners = new LinkedHashSet<>();
+			index.put(key, listeners);
+		}
+		listeners.add(listener);
+		rebuild();
+	}
+
+	private void rebuild() {
+		final ImmutableMap.Builder<String, List<IEslEventListener>> names = ImmutableMap.builder();
+		for (Map.Entry<String, Set<IEslEventListener>> entry : byEventName.entrySet()) {
+			names.put(entry.getKey(), merge(global, entry.getValue()));
+		}
+
+		final Set<IEslEventListener> custom = byEventName.containsKey(CUSTOM) ? byEventName.get(CUSTOM) : new LinkedHashSet<>();
+		final ImmutableMap.Builder<String, List<IEslEventListener>> subclasses = ImmutableMap.builder();
+		for (Map.Entry<String, Set<IEslEventListener>> entry : bySubclass.entrySet()) {
+			subclasses.put(entry.getKey(), merge(global, custom, entry.getValue()));
+		}
+
+		routes = new Routes(ImmutableList.copyOf(global), names.build(), subclasses.build());
+	}
+
+	@SafeVarargs
+	private static List<IEslEventListener> merge(Set<IEslEventListener>... sources) {
+		// a listener registered more than once is still called once per event
+		final Set<IEslEventListener> merged = new LinkedHashSet<>();
+		for (Set<IEslEventListener> source : sources) {
+			merged.addAll(source);
+		}
+		return ImmutableList.copyOf(merged);
+	}
+
+	private static final class Routes {
+		private final List<IEslEventListener> global;
+		private final Map<String, List<IEslEventListener>> byEventName;
+		private final Map<String, List<IEslEventListener>> bySubclass;
+
+		Routes(List<IEslEventListener> global, Map<String, List<IEslEventListener>> byEventName,
+			   Map<String, List<IEslEventListener>> bySubclass) {
+			this.global = global;
+			this.byEventName = byEventName;
+			this.bySubclass = bySubclass;
+		}
+
+		List<IEslEventListener> lookup(String eventName, String subclass) {
+			if (subclass != null && CUSTOM.equals(eventName)) {
+				final List<IEslEventListener> listeners = bySubclass.get(subclass);
+				if (listeners != null) {
+					return listeners;
+				}
+			}
+			final List<IEslEventListener> listeners = eventName == null ? null : byEventName.get(eventName);
+			return listeners != null ? listeners : global;
+		}
+	}
+}
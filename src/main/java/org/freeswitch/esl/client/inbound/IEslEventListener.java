@@ -21,12 +21,12 @@ import org.freeswitch.esl.client.transport.event.EslEvent;
 /**
  * Interface for observers wanting to be notified of incoming FreeSWITCH Event Socket events.
  * <p/>
- * Events are guaranteed to be processed (and listeners notified) in the order in which the
- * events are received off the wire.
+ * Events of the same call (or background job, or otherwise of the same event name) are guaranteed to be
+ * processed (and listeners notified) in the order in which the events are received off the wire.
  * <p/>
  * This design ensures that incoming event processing is not blocked by any long-running listener process.
- * However multiple listeners will be notified sequentially, and so one slow listener can cause latency
- * to other listeners.
+ * However the listeners of an event will be notified sequentially, and so one slow listener can cause
+ * latency to other listeners of events on the same dispatch lane.
  */
 public interface IEslEventListener {
 	/**
@@ -15,9 +15,11 @@
  */
 package org.freeswitch.esl.client.inbound;
 
+import io.netty.channel.Channel;
 import org.freeswitch.esl.client.internal.Context;
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EventRoutingHeaders;
 
 /**
  * End users of the {@link Client} should not need to use this class.
@@ -27,7 +29,13 @@ import org.freeswitch.esl.client.transport.event.EslEvent;
 interface IEslProtocolListener {
 	void authResponseReceived(CommandResponse response);
 
-	void eventReceived(Context ctx, EslEvent event);
+	void eventReceived(Channel channel, Context ctx, EslEvent event);
+
+	/**
+	 * @param routing headers peeked at in the raw event
+	 * @return false if no one would handle the event, so that it is dropped unparsed
+	 */
+	boolean isEventWanted(EventRoutingHeaders routing);
 
 	void disconnected();
 }
@@ -4,7 +4,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.string.StringEncoder;
+import org.freeswitch.esl.client.transport.message.EslCommandEncoder;
 import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
 
 /**
@@ -27,6 +27,6 @@ class InboundChannelInitializer extends ChannelInitializer<SocketChannel> {
 
         // now the inbound client logic
         pipeline.addLast("clientHandler", handler);
-        pipeline.addLast("encoder", new StringEncoder());
+        pipeline.addLast("encoder", new EslCommandEncoder());
     }
 }
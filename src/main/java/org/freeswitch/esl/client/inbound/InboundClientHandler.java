@@ -19,7 +19,9 @@ import io.netty.channel.ChannelHandlerContext;
 import org.freeswitch.esl.client.internal.AbstractEslClientHandler;
 import org.freeswitch.esl.client.internal.Context;
 import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.EslCommand;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EventRoutingHeaders;
 import org.freeswitch.esl.client.transport.message.EslHeaders;
 
 /**
@@ -51,14 +53,19 @@ class InboundClientHandler extends AbstractEslClientHandler {
 	@Override
 	protected void handleEslEvent(ChannelHandlerContext ctx, EslEvent event) {
 		log.debug("Received event: [{}]", event);
-		listener.eventReceived(new Context(ctx.channel(), this), event);
+		listener.eventReceived(ctx.channel(), new Context(ctx.channel(), this), event);
+	}
+
+	@Override
+	protected boolean isEventWanted(EventRoutingHeaders routing) {
+		return listener.isEventWanted(routing);
 	}
 
 	@Override
 	protected void handleAuthRequest(ChannelHandlerContext ctx) {
 		log.debug("Auth requested, sending [auth {}]", "*****");
 
-		sendApiSingleLineCommand(ctx.channel(), "auth " + password)
+		sendCommand(ctx.channel(), new EslCommand("auth", password))
 				.thenAccept(response -> {
 					log.debug("Auth response [{}]", response);
 					if (response.getContentType().equals(EslHeaders.Value.COMMAND_REPLY)) {
@@ -18,18 +18,27 @@ package org.freeswitch.esl.client.internal;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.SendMsg;
 import org.freeswitch.esl.client.transport.event.EslEvent;
 import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.freeswitch.esl.client.transport.event.EventRoutingHeaders;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Value;
 import org.freeswitch.esl.client.transport.message.EslMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -48,6 +57,9 @@ import static com.google.common.base.Strings.isNullOrEmpty;
  * </li><li>
  * Concrete sub classes are expected to 'terminate' the Netty IO processing pipeline (ie be the 'last'
  * handler).
+ * </li><li>
+ * To release each received {@link EslMessage} once it has been handled. Anything that hands a message
+ * or its body to another thread must decode what it needs first.
  * </li></ul>
  * Note: implementation requirement is that an {@link ExecutionHandler} is placed in the processing
  * pipeline prior to this handler. This will ensure that each incoming message is processed in its
@@ -55,29 +67,158 @@ import static com.google.common.base.Strings.isNullOrEmpty;
  */
 public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandler<EslMessage> {
 
-	private static final String MESSAGE_TERMINATOR = "\n\n";
-	private static final String LINE_TERMINATOR = "\n";
+	// shared by all connections, a deadline only needs to fire within a few ticks of expiring
+	private static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer(
+			new DefaultThreadFactory("esl-command-timeout", true), 10, TimeUnit.MILLISECONDS);
 
 	protected final Logger log = LoggerFactory.getLogger(this.getClass());
-	// used to preserve association between adding future to queue and sending message on channel
-	private final ReentrantLock syncLock = new ReentrantLock();
 	private final ConcurrentLinkedQueue<CompletableFuture<EslMessage>> apiCalls =
 			new ConcurrentLinkedQueue<>();
+	// preserves the association between adding a future to apiCalls and sending its command on the channel
+	private final CommandSubmitter submitter = new CommandSubmitter(apiCalls);
+
+	private final BackgroundJobRegistry backgroundJobs = new BackgroundJobRegistry(
+			TIMEOUT_TIMER, "BACKGROUND_JOB", 10, TimeUnit.MINUTES);
+	private final BackgroundJobRegistry applicationExecutions = new BackgroundJobRegistry(
+			TIMEOUT_TIMER, "CHANNEL_EXECUTE_COMPLETE", 4, TimeUnit.HOURS);
+	// completed once the server has answered the BACKGROUND_JOB subscription, null until it is sent
+	private final AtomicReference<CompletableFuture<Void>> backgroundJobSubscription = new AtomicReference<>();
+
+	private final AtomicLong skippedEvents = new AtomicLong();
+
+	private volatile boolean lazyEventParsing = false;
+	private volatile long defaultTimeoutNanos = 0;
+	private volatile boolean backgroundJobAutoSubscribe = true;
+	private volatile String sessionChannelUuid;
+
+	/**
+	 * Only index the header lines of received events, decoding each value when it is first read.
+	 * See {@link EslEvent#EslEvent(EslMessage, boolean, boolean)}.
+	 *
+	 * @param lazyEventParsing true to parse event headers on demand
+	 */
+	public void setLazyEventParsing(boolean lazyEventParsing) {
+		this.lazyEventParsing = lazyEventParsing;
+	}
+
+	/**
+	 * Batch the writes of commands issued in the same event loop tick into a single flush, instead of
+	 * flushing every command on its own.  Commands still reach the wire in the order their responses
+	 * are expected.
+	 *
+	 * @param maxBatch maximum number of commands written before a flush is forced, 0 to disable coalescing
+	 * @param maxDelay maximum time a command may wait to be flushed, 0 to flush at the end of the tick
+	 * @param unit     of maxDelay
+	 */
+	public void setWriteCoalescing(int maxBatch, long maxDelay, TimeUnit unit) {
+		submitter.setWriteCoalescer(maxBatch > 0 ? new WriteCoalescer(maxBatch, maxDelay, unit) : null);
+	}
+
+	/**
+	 * Deadline applied to every command sent without an explicit timeout.  When it expires the
+	 * returned future fails with a {@link TimeoutException}; the late response, if it ever arrives,
+	 * is discarded so that the following responses are still matched to the right commands.
+	 *
+	 * @param timeout default deadline, 0 for none
+	 * @param unit    of timeout
+	 */
+	public void setDefaultCommandTimeout(long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		this.defaultTimeoutNanos = unit.toNanos(timeout);
+	}
 
-	private final ConcurrentHashMap<String, CompletableFuture<EslEvent>> backgroundJobs =
-			new ConcurrentHashMap<>();
-	private final ExecutorService backgroundJobExecutor = Executors.newCachedThreadPool();
+	/**
+	 * Bound the background api jobs waiting for their BACKGROUND_JOB event.  By default at most
+	 * 100000 jobs may be outstanding, for at most 10 minutes each.
+	 *
+	 * @param maxOutstanding maximum number of outstanding jobs, further jobs fail straight away
+	 * @param timeout        default time a job may wait for its event, 0 for no deadline
+	 * @param unit           of timeout
+	 */
+	public void setBackgroundJobLimits(int maxOutstanding, long timeout, TimeUnit unit) {
+		backgroundJobs.setLimits(maxOutstanding, timeout, unit);
+	}
+
+	/**
+	 * Subscribe the connection to BACKGROUND_JOB events when the first background api command is
+	 * sent, on by default.  Background api commands are held back until the server has answered the
+	 * subscription, and the subscription leaves the connection's event format as it is.  Without the
+	 * subscription background jobs can only expire.
+	 *
+	 * @param autoSubscribe false if the application manages the subscription itself
+	 */
+	public void setBackgroundJobAutoSubscribe(boolean autoSubscribe) {
+		this.backgroundJobAutoSubscribe = autoSubscribe;
+	}
+
+	/**
+	 * @return the outstanding background jobs, to monitor them
+	 */
+	public BackgroundJobRegistry getBackgroundJobs() {
+		return backgroundJobs;
+	}
+
+	/**
+	 * Bound the dialplan applications waiting for their CHANNEL_EXECUTE_COMPLETE event.  By default
+	 * at most 100000 applications may be outstanding, for at most 4 hours each.  The applications of a
+	 * channel also fail once its CHANNEL_HANGUP_COMPLETE or CHANNEL_DESTROY event is received, so the
+	 * deadline only has to outlast the longest call, since an application such as bridge lasts as
+	 * long as the call.
+	 *
+	 * @param maxOutstanding maximum number of outstanding applications, further ones fail straight away
+	 * @param timeout        default time an application may run, 0 for no deadline
+	 * @param unit           of timeout
+	 */
+	public void setApplicationExecutionLimits(int maxOutstanding, long timeout, TimeUnit unit) {
+		applicationExecutions.setLimits(maxOutstanding, timeout, unit);
+	}
+
+	/**
+	 * @param channelUuid uuid of the channel the connection controls, in outbound mode, which the
+	 *                    messages sent without a uuid are executed on
+	 */
+	protected void setSessionChannelUuid(String channelUuid) {
+		this.sessionChannelUuid = channelUuid;
+	}
+
+	/**
+	 * @return the outstanding application executions, to monitor them
+	 */
+	public BackgroundJobRegistry getApplicationExecutions() {
+		return applicationExecutions;
+	}
+
+	/**
+	 * @return number of received events dropped without being parsed, because nothing wanted them
+	 */
+	public long getSkippedEventCount() {
+		return skippedEvents.get();
+	}
+
+	/**
+	 * @return number of commands submitted by callers that the IO thread has not written yet
+	 */
+	public int getQueuedCommandCount() {
+		return submitter.depth();
+	}
+
+	/**
+	 * @return true while a command has been submitted and its reply has not been received
+	 */
+	boolean isAwaitingReply() {
+		return !apiCalls.isEmpty() || submitter.depth() > 0;
+	}
 
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable e) throws Exception {
+		final Throwable cause = e.getCause() != null ? e.getCause() : e;
 
 		for (final CompletableFuture<EslMessage> apiCall : apiCalls) {
-			apiCall.completeExceptionally(e.getCause());
+			apiCall.completeExceptionally(cause);
 		}
 
-		for (final CompletableFuture<EslEvent> backgroundJob : backgroundJobs.values()) {
-			backgroundJob.completeExceptionally(e.getCause());
-		}
+		backgroundJobs.failAll(cause);
+		applicationExecutions.failAll(cause);
 
 		ctx.close();
 
@@ -85,20 +226,41 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 
 	}
 
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		// no response can arrive anymore, fail everything still waiting for one
+		final ClosedChannelException closed = new ClosedChannelException();
+		submitter.fail(closed);
+
+		CompletableFuture<EslMessage> apiCall;
+		while ((apiCall = apiCalls.poll()) != null) {
+			apiCall.completeExceptionally(closed);
+		}
+
+		backgroundJobs.failAll(closed);
+		applicationExecutions.failAll(closed);
+
+		super.channelInactive(ctx);
+	}
+
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, EslMessage message) throws Exception {
 		final String contentType = message.getContentType();
-		if (contentType.equals(Value.TEXT_EVENT_PLAIN) ||
+		if (contentType.equals(Value.TEXT_EVENT_PLAIN) && !isEventWanted(message)) {
+			skippedEvents.incrementAndGet();
+		} else if (contentType.equals(Value.TEXT_EVENT_PLAIN) ||
 				contentType.equals(Value.TEXT_EVENT_XML)) {
 			//  transform into an event
-			final EslEvent eslEvent = new EslEvent(message);
+			final EslEvent eslEvent = new EslEvent(message, false, lazyEventParsing);
 			if (eslEvent.getEventName().equals("BACKGROUND_JOB")) {
 				final String backgroundUuid = eslEvent.getEventHeaders().get(EslEventHeaderNames.JOB_UUID);
-				final CompletableFuture<EslEvent> future = backgroundJobs.remove(backgroundUuid);
-				if (null != future) {
-					future.complete(eslEvent);
+				if (!backgroundJobs.complete(backgroundUuid, eslEvent)) {
+					log.debug("No outstanding background job [{}], it may have expired", backgroundUuid);
 				}
 			} else {
+				if (applicationExecutions.getOutstandingCount() > 0) {
+					trackApplicationExecutions(eslEvent);
+				}
 				handleEslEvent(ctx, eslEvent);
 			}
 		} else {
@@ -106,6 +268,52 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		}
 	}
 
+	private void trackApplicationExecutions(EslEvent event) {
+		final String eventName = event.getEventName();
+		if (eventName.equals("CHANNEL_EXECUTE_COMPLETE")) {
+			final String applicationUuid = event.getEventHeaders().get(EslEventHeaderNames.APPLICATION_UUID);
+			if (applicationUuid != null) {
+				applicationExecutions.complete(applicationUuid, event);
+			}
+		} else if (eventName.equals("CHANNEL_HANGUP_COMPLETE") || eventName.equals("CHANNEL_DESTROY")) {
+			// the applications still queued on the channel will never run
+			final String channelUuid = event.getEventHeaders().get(EslEventHeaderNames.UNIQUE_ID);
+			if (channelUuid != null) {
+				applicationExecutions.failChannel(channelUuid,
+						new IllegalStateException("Channel " + channelUuid + " is gone, its application did not complete"));
+			}
+		}
+	}
+
+	private static boolean isApplicationExecutionEvent(String eventName) {
+		return "CHANNEL_EXECUTE_COMPLETE".equals(eventName) || "CHANNEL_HANGUP_COMPLETE".equals(eventName)
+				|| "CHANNEL_DESTROY".equals(eventName);
+	}
+
+	private boolean isEventWanted(EslMessage message) {
+		final EventRoutingHeaders routing = EventRoutingHeaders.peek(message);
+		if (routing == null || "BACKGROUND_JOB".equals(routing.getEventName()) || isEventWanted(routing)
+				|| (isApplicationExecutionEvent(routing.getEventName()) && applicationExecutions.getOutstandingCount() > 0)) {
+			return true;
+		}
+		log.trace("Skipping unwanted event [{}]", routing);
+		return false;
+	}
+
+	/**
+	 * Decides, from the routing headers peeked at in the raw frame, whether a received 'plain' event
+	 * is worth parsing and handling at all.  Events that are not wanted are dropped before any other
+	 * header is decoded.  {@code BACKGROUND_JOB} events are always kept, to complete the
+	 * background api calls, and so are {@code CHANNEL_EXECUTE_COMPLETE}, {@code CHANNEL_HANGUP_COMPLETE}
+	 * and {@code CHANNEL_DESTROY} events while applications are outstanding.
+	 *
+	 * @param routing headers of the received event
+	 * @return false to drop the event, true by default
+	 */
+	protected boolean isEventWanted(EventRoutingHeaders routing) {
+		return true;
+	}
+
 	protected void handleEslMessage(ChannelHandlerContext ctx, EslMessage message) {
 		log.debug("Received message: [{}]", message);
 		final String contentType = message.getContentType();
@@ -113,12 +321,12 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		switch (contentType) {
 			case Value.API_RESPONSE:
 				log.debug("Api response received [{}]", message);
-				apiCalls.poll().complete(message);
+				completeApiCall(message);
 				break;
 
 			case Value.COMMAND_REPLY:
 				log.debug("Command reply received [{}]", message);
-				apiCalls.poll().complete(message);
+				completeApiCall(message);
 				break;
 
 			case Value.AUTH_REQUEST:
@@ -137,6 +345,20 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		}
 	}
 
+	private void completeApiCall(EslMessage message) {
+		// always consume the head of the queue, even if its caller gave up waiting
+		final CompletableFuture<EslMessage> apiCall = apiCalls.poll();
+		if (apiCall == null) {
+			log.warn("Unexpected response, no command is waiting for it [{}]", message);
+		} else if (apiCall.isDone()) {
+			log.debug("Discarding response to a timed out or cancelled command [{}]", message);
+		} else {
+			// the response escapes to other threads, so decode the body before the frame buffer is released
+			message.getBodyLines();
+			apiCall.complete(message);
+		}
+	}
+
 	/**
 	 * Synthesise a synchronous command/response by creating a callback object which is placed in
 	 * queue and blocks waiting for another IO thread to process an incoming {@link EslMessage} and
@@ -147,17 +369,98 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 	 * @return the {@link EslMessage} attached to this command's callback
 	 */
 	public CompletableFuture<EslMessage> sendApiSingleLineCommand(Channel channel, final String command) {
-		final CompletableFuture<EslMessage> future = new CompletableFuture<>();
-		try {
-			syncLock.lock();
-			apiCalls.add(future);
-			channel.writeAndFlush(command + MESSAGE_TERMINATOR);
-		} finally {
-			syncLock.unlock();
+		return sendCommand(channel, new EslCommand(command));
+	}
+
+	/**
+	 * Synthesise a synchronous command/response for a command that is encoded straight to the wire
+	 * by the {@link org.freeswitch.esl.client.transport.message.EslCommandEncoder}.
+	 *
+	 * @param channel socket connection
+	 * @param command the command to send
+	 * @return the {@link EslMessage} attached to this command's callback
+	 */
+	public CompletableFuture<EslMessage> sendCommand(Channel channel, final EslCommand command) {
+		return submit(channel, command, defaultTimeoutNanos);
+	}
+
+	/**
+	 * As {@link #sendCommand(Channel, EslCommand)}, failing the returned future with a
+	 * {@link TimeoutException} if no response arrives in time.
+	 *
+	 * @param channel socket connection
+	 * @param command the command to send
+	 * @param timeout deadline for the response, 0 for none
+	 * @param unit    of timeout
+	 * @return the {@link EslMessage} attached to this command's callback
+	 */
+	public CompletableFuture<EslMessage> sendCommand(Channel channel, final EslCommand command, long timeout, TimeUnit unit) {
+		return submit(channel, command, unit.toNanos(timeout));
+	}
+
+	/**
+	 * Synthesise a synchronous command/response for a {@link SendMsg}.
+	 *
+	 * @param channel socket connection
+	 * @param sendMsg the message to send
+	 * @return the {@link EslMessage} attached to this command's callback
+	 */
+	public CompletableFuture<EslMessage> sendMessage(Channel channel, final SendMsg sendMsg) {
+		return submit(channel, sendMsg, defaultTimeoutNanos);
+	}
+
+	/**
+	 * As {@link #sendMessage(Channel, SendMsg)}, failing the returned future with a
+	 * {@link TimeoutException} if no response arrives in time.
+	 *
+	 * @param channel socket connection
+	 * @param sendMsg the message to send
+	 * @param timeout deadline for the response, 0 for none
+	 * @param unit    of timeout
+	 * @return the {@link EslMessage} attached to this command's callback
+	 */
+	public CompletableFuture<EslMessage> sendMessage(Channel channel, final SendMsg sendMsg, long timeout, TimeUnit unit) {
+		return submit(channel, sendMsg, unit.toNanos(timeout));
+	}
+
+	/**
+	 * Pipeline several messages: they are written back to back, with no other command in between,
+	 * and flushed together (unless write coalescing forces an earlier flush), so the whole sequence
+	 * costs about one round trip instead of one per message.
+	 *
+	 * @param channel  socket connection
+	 * @param sendMsgs the messages to send, in order
+	 * @return the response of each message, in the same order
+	 */
+	public List<CompletableFuture<EslMessage>> sendMessages(Channel channel, final List<SendMsg> sendMsgs) {
+		final List<CompletableFuture<EslMessage>> futures = new ArrayList<>(sendMsgs.size());
+		for (int i = 0; i < sendMsgs.size(); i++) {
+			futures.add(new CompletableFuture<>());
+		}
+		submitter.submitAll(channel, sendMsgs, futures);
+		EventDispatchQueue.readForReply(channel);
+		for (CompletableFuture<EslMessage> future : futures) {
+			armTimeout(future, defaultTimeoutNanos);
 		}
+		return futures;
+	}
 
+	private CompletableFuture<EslMessage> submit(Channel channel, final Object command, final long timeoutNanos) {
+		final CompletableFuture<EslMessage> future = new CompletableFuture<>();
+		submitter.submit(channel, command, future);
+		EventDispatchQueue.readForReply(channel);
+		armTimeout(future, timeoutNanos);
 		return future;
+	}
 
+	private static void armTimeout(final CompletableFuture<EslMessage> future, final long timeoutNanos) {
+		if (timeoutNanos > 0 && !future.isDone()) {
+			// the future stays queued in apiCalls, its response slot is consumed when the response arrives
+			final Timeout timeout = TIMEOUT_TIMER.newTimeout(t -> future.completeExceptionally(
+					new TimeoutException("No response within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms")),
+					timeoutNanos, TimeUnit.NANOSECONDS);
+			future.whenComplete((response, cause) -> timeout.cancel());
+		}
 	}
 
 	/**
@@ -176,7 +479,7 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		checkArgument(!isNullOrEmpty(command), "command may not be null or empty");
 		checkArgument(!isNullOrEmpty(arg), "arg may not be null or empty");
 
-		return sendApiSingleLineCommand(channel, "api " + command + ' ' + arg);
+		return sendCommand(channel, new EslCommand("api", command, arg));
 	}
 
 	/**
@@ -188,50 +491,31 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 	 * @return the {@link EslMessage} attached to this command's callback
 	 */
 	public CompletableFuture<EslMessage> sendApiMultiLineCommand(Channel channel, final List<String> commandLines) {
-		//  Build command with double line terminator at the end
-		final StringBuilder sb = new StringBuilder();
-		for (final String line : commandLines) {
-			sb.append(line);
-			sb.append(LINE_TERMINATOR);
-		}
-		sb.append(LINE_TERMINATOR);
-
-		final CompletableFuture<EslMessage> future = new CompletableFuture<>();
-		try {
-			syncLock.lock();
-			apiCalls.add(future);
-			channel.write(sb.toString());
-            channel.flush();
-		} finally {
-			syncLock.unlock();
-		}
-
-		return future;
-
+		return sendCommand(channel, EslCommand.ofLines(commandLines));
 	}
 
 	/**
-	 * Returns the Job UUID of that the response event will have.
+	 * Send a background api command, under a Job-UUID generated by the client.
 	 *
 	 * @param channel socket connection
-	 * @param command socket connection
-	 * @return Job-UUID as a string
+	 * @param command the full bgapi command line
+	 * @return future completed with the BACKGROUND_JOB event of the job
 	 */
 	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final String command) {
+		return sendBackgroundApiCommand(channel, new EslCommand(command));
+	}
 
-		return sendApiSingleLineCommand(channel, command)
-				.thenComposeAsync(result -> {
-					if (result.hasHeader(Name.JOB_UUID)) {
-						final String jobId = result.getHeaderValue(Name.JOB_UUID);
-						final CompletableFuture<EslEvent> resultFuture = new CompletableFuture<>();
-						backgroundJobs.put(jobId, resultFuture);
-						return resultFuture;
-					} else {
-						final CompletableFuture<EslEvent> resultFuture = new CompletableFuture<>();
-						resultFuture.completeExceptionally(new IllegalStateException("Missing Job-UUID header in bgapi response"));
-						return resultFuture;
-					}
-				}, backgroundJobExecutor);
+	/**
+	 * Send a background api command, under a Job-UUID generated by the client.  The job is
+	 * registered before the command is sent, so its BACKGROUND_JOB event cannot arrive before
+	 * the client is waiting for it.
+	 *
+	 * @param channel socket connection
+	 * @param command the bgapi command
+	 * @return future completed with the BACKGROUND_JOB event of the job
+	 */
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final EslCommand command) {
+		return sendBackgroundApiCommand(channel, command, newJobUuid());
 	}
 
 	/**
@@ -243,15 +527,144 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 	 * @return CompletableFuture with result of command
 	 */
 	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final String command, String jobId) {
-		List<String> commandsLines = new ArrayList<>();
-		commandsLines.add(command);
-		commandsLines.add("Job-UUID:" + jobId);
-		sendApiMultiLineCommand(channel, commandsLines);
-		final CompletableFuture<EslEvent> resultFuture = new CompletableFuture<>();
-		backgroundJobs.put(jobId, resultFuture);
+		return sendBackgroundApiCommand(channel, new EslCommand(command), jobId);
+	}
+
+	/**
+	 * Send background api command with predefined Job-UUID
+	 *
+	 * @param channel socket connection
+	 * @param command the bgapi command, sent with a Job-UUID header but left unchanged
+	 * @param jobId Job-UUID
+	 * @return CompletableFuture with result of command
+	 */
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final EslCommand command, final String jobId) {
+		return sendBackgroundApiCommand(channel, command, jobId, backgroundJobs.getDefaultTimeoutNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Send background api command with predefined Job-UUID and its own deadline.
+	 *
+	 * @param channel socket connection
+	 * @param command the bgapi command, sent with a Job-UUID header but left unchanged
+	 * @param jobId   Job-UUID
+	 * @param timeout time the job may wait for its BACKGROUND_JOB event, 0 for no deadline
+	 * @param unit    of timeout
+	 * @return CompletableFuture with result of command
+	 */
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final EslCommand command, final String jobId,
+																long timeout, TimeUnit unit) {
+		checkArgument(!isNullOrEmpty(jobId), "jobId cannot be null or empty");
+		final CompletableFuture<EslEvent> resultFuture = backgroundJobs.register(jobId, unit.toNanos(timeout));
+		if (resultFuture.isDone()) {
+			// refused by admission control
+			return resultFuture;
+		}
+
+		// the caller may resend its command under another Job-UUID, so leave it untouched
+		final EslCommand jobCommand = command.withHeader("Job-UUID", jobId);
+		if (!backgroundJobAutoSubscribe) {
+			sendBackgroundJob(channel, jobCommand, jobId, resultFuture);
+		} else {
+			// every job waits for the subscription to be in place, so that none can finish unseen
+			subscribeToBackgroundJobs(channel).whenComplete(
+					(subscribed, cause) -> sendBackgroundJob(channel, jobCommand, jobId, resultFuture));
+		}
+		return resultFuture;
+	}
+
+	private void sendBackgroundJob(Channel channel, EslCommand jobCommand, String jobId, CompletableFuture<EslEvent> resultFuture) {
+		sendCommand(channel, jobCommand)
+				.whenComplete((reply, cause) -> failIfNotAccepted(backgroundJobs, jobId, resultFuture, reply, cause));
+	}
+
+	private CompletableFuture<Void> subscribeToBackgroundJobs(Channel channel) {
+		final CompletableFuture<Void> current = backgroundJobSubscription.get();
+		if (current != null) {
+			return current;
+		}
+		final CompletableFuture<Void> subscription = new CompletableFuture<>();
+		if (!backgroundJobSubscription.compareAndSet(null, subscription)) {
+			return backgroundJobSubscription.get();
+		}
+		// without a format token the server keeps the connection's current event format
+		sendCommand(channel, new EslCommand("event", "BACKGROUND_JOB"))
+				.whenComplete((reply, cause) -> {
+					if (cause != null) {
+						log.warn("Could not subscribe to BACKGROUND_JOB events", cause);
+					} else if (reply.getHeaderValue(Name.REPLY_TEXT) != null
+							&& reply.getHeaderValue(Name.REPLY_TEXT).startsWith("-ERR")) {
+						log.warn("Could not subscribe to BACKGROUND_JOB events: {}", reply.getHeaderValue(Name.REPLY_TEXT));
+					}
+					// the jobs are sent either way, without the subscription they can only expire
+					subscription.complete(null);
+				});
+		return subscription;
+	}
+
+	/**
+	 * Execute a dialplan application, under an Event-UUID generated by the client.
+	 *
+	 * @param channel socket connection
+	 * @param sendMsg the execute message, sent with an Event-UUID line added to a copy of it
+	 * @return future completed with the CHANNEL_EXECUTE_COMPLETE event of the application
+	 * @see #executeApplication(Channel, SendMsg, String)
+	 */
+	public CompletableFuture<EslEvent> executeApplication(Channel channel, SendMsg sendMsg) {
+		return executeApplication(channel, sendMsg, newJobUuid());
+	}
+
+	/**
+	 * Execute a dialplan application and wait for it to finish without blocking.  FreeSWITCH reports
+	 * the Event-UUID of the message as the Application-UUID of the CHANNEL_EXECUTE_COMPLETE event,
+	 * which carries the channel variables as they are when the application returns.
+	 * <p/>
+	 * The connection must receive the CHANNEL_EXECUTE_COMPLETE events of the channel: subscribe to
+	 * them, or use {@code myevents} in outbound mode.  If the channel's CHANNEL_HANGUP_COMPLETE or
+	 * CHANNEL_DESTROY event is received first, the future fails with an {@link IllegalStateException}.
+	 *
+	 * @param channel         socket connection
+	 * @param sendMsg         the execute message, sent with an Event-UUID line added to a copy of it
+	 * @param applicationUuid Event-UUID, must be unique among the outstanding applications
+	 * @return future completed with the CHANNEL_EXECUTE_COMPLETE event of the application
+	 */
+	public CompletableFuture<EslEvent> executeApplication(Channel channel, SendMsg sendMsg, final String applicationUuid) {
+		checkArgument(!isNullOrEmpty(applicationUuid), "applicationUuid cannot be null or empty");
+		final String channelUuid = sendMsg.hasUuid() ? sendMsg.getUuid() : sessionChannelUuid;
+		final CompletableFuture<EslEvent> resultFuture = applicationExecutions.register(
+				applicationUuid, channelUuid, applicationExecutions.getDefaultTimeoutNanos());
+		if (resultFuture.isDone()) {
+			// refused by admission control
+			return resultFuture;
+		}
+
+		sendMessage(channel, sendMsg.withEventUuid(applicationUuid))
+				.whenComplete((reply, cause) -> failIfNotAccepted(applicationExecutions, applicationUuid, resultFuture, reply, cause));
 		return resultFuture;
 	}
 
+	private static void failIfNotAccepted(BackgroundJobRegistry registry, String jobId, CompletableFuture<EslEvent> resultFuture,
+										  EslMessage reply, Throwable cause) {
+		// a job that was not accepted never fires its event
+		if (cause != null) {
+			registry.fail(jobId, resultFuture, cause);
+		} else if (reply.getHeaderValue(Name.REPLY_TEXT) != null
+				&& reply.getHeaderValue(Name.REPLY_TEXT).startsWith("-ERR")) {
+			registry.fail(jobId, resultFuture, new IllegalStateException(reply.getHeaderValue(Name.REPLY_TEXT)));
+		}
+	}
+
+	/**
+	 * A random (version 4) UUID, without the contention of the shared SecureRandom behind
+	 * {@link UUID#randomUUID()}, which a Job-UUID does not need.
+	 */
+	private static String newJobUuid() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long mostSigBits = (random.nextLong() & ~0xf000L) | 0x4000L;
+		final long leastSigBits = (random.nextLong() & ~(0xc000L << 48)) | (0x8000L << 48);
+		return new UUID(mostSigBits, leastSigBits).toString();
+	}
+
 	protected abstract void handleEslEvent(ChannelHandlerContext ctx, EslEvent event);
 
 	protected abstract void handleAuthRequest(ChannelHandlerContext ctx);
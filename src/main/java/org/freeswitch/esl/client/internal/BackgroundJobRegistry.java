@@ -0,0 +1,266 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The background api jobs of a connection that are waiting for their BACKGROUND_JOB event.
+ * <p/>
+ * Every job has a deadline on a shared timer wheel: a job whose event never arrives (the
+ * connection is not subscribed to it, or it was filtered out) fails with a {@link TimeoutException}
+ * and is forgotten instead of being kept forever.  The number of outstanding jobs is bounded, jobs
+ * submitted beyond it fail straight away with a {@link RejectedExecutionException}.
+ * <p/>
+ * Dialplan applications executed with an Event-UUID are tracked the same way, waiting for their
+ * CHANNEL_EXECUTE_COMPLETE event.  They are also indexed by the channel they run on, so that they
+ * can all be failed when the channel goes away without running them.
+ */
+public final class BackgroundJobRegistry {
+
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	// ids of the jobs of each channel, the sets are only accessed under their map entry's lock
+	private final Map<String, Set<String>> jobsByChannel = new ConcurrentHashMap<>();
+	private final Timer timer;
+	private final String completionEvent;
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong expired = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	private volatile int maxOutstanding = 100_000;
+	private volatile long defaultTimeoutNanos;
+
+	/**
+	 * @param timer           expires the jobs
+	 * @param completionEvent name of the event that completes a job, for the error messages
+	 * @param defaultTimeout  default time a job may wait for its event, 0 for no deadline
+	 * @param unit            of defaultTimeout
+	 */
+	BackgroundJobRegistry(Timer timer, String completionEvent, long defaultTimeout, TimeUnit unit) {
+		this.timer = timer;
+		this.completionEvent = completionEvent;
+		this.defaultTimeoutNanos = unit.toNanos(defaultTimeout);
+	}
+
+	/**
+	 * @param maxOutstanding maximum number of jobs waiting for their event
+	 * @param timeout        default time a job may wait for its event, 0 for no deadline
+	 * @param unit           of timeout
+	 */
+	void setLimits(int maxOutstanding, long timeout, TimeUnit unit) {
+		checkArgument(maxOutstanding > 0, "maxOutstanding must be positive");
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		this.maxOutstanding = maxOutstanding;
+		this.defaultTimeoutNanos = unit.toNanos(timeout);
+	}
+
+	long getDefaultTimeoutNanos() {
+		return defaultTimeoutNanos;
+	}
+
+	/**
+	 * @param jobId        Job-UUID (or Application-UUID) the completion event will carry
+	 * @param timeoutNanos deadline of the job, 0 for none
+	 * @return future completed with the job's event, already failed if too many jobs are outstanding
+	 * @throws IllegalArgumentException if a job with the same Job-UUID is outstanding
+	 */
+	CompletableFuture<EslEvent> register(final String jobId, long timeoutNanos) {
+		return register(jobId, null, timeoutNanos);
+	}
+
+	/**
+	 * @param jobId        Job-UUID (or Application-UUID) the completion event will carry
+	 * @param channelUuid  channel the job runs on, null if unknown
+	 * @param timeoutNanos deadline of the job, 0 for none
+	 * @return future completed with the job's event, already failed if too many jobs are outstanding
+	 * @throws IllegalArgumentException if a job with the same Job-UUID is outstanding
+	 */
+	CompletableFuture<EslEvent> register(final String jobId, String channelUuid, long timeoutNanos) {
+		final Job job = new Job(channelUuid);
+		if (outstanding.incrementAndGet() > maxOutstanding) {
+			outstanding.decrementAndGet();
+			rejected.incrementAndGet();
+			job.future.completeExceptionally(new RejectedExecutionException(
+					"Too many " + completionEvent + " jobs outstanding, limit is " + maxOutstanding));
+			return job.future;
+		}
+		if (timeoutNanos > 0) {
+			job.timeout = timer.newTimeout(t -> expire(jobId, job, timeoutNanos), timeoutNanos, TimeUnit.NANOSECONDS);
+		}
+		try {
+			publish(jobId, job);
+		} catch (IllegalArgumentException e) {
+			outstanding.decrementAndGet();
+			if (job.timeout != null) {
+				job.timeout.cancel();
+			}
+			throw e;
+		}
+		// the deadline may have passed before the job was published, when removing it did nothing
+		if (job.timeout != null && job.timeout.isExpired()) {
+			expire(jobId, job, timeoutNanos);
+		}
+		return job.future;
+	}
+
+	private void publish(final String jobId, final Job job) {
+		if (job.channelUuid == null) {
+			putJob(jobId, job);
+			return;
+		}
+		// under the lock of the channel's entry, so that failChannel either finds the job or runs before it exists
+		jobsByChannel.compute(job.channelUuid, (uuid, ids) -> {
+			putJob(jobId, job);
+			final Set<String> channelJobs = ids != null ? ids : new HashSet<>();
+			channelJobs.add(jobId);
+			return channelJobs;
+		});
+	}
+
+	private void putJob(String jobId, Job job) {
+		if (jobs.putIfAbsent(jobId, job) != null) {
+			throw new IllegalArgumentException("Job " + jobId + " is already pending");
+		}
+	}
+
+	private void expire(String jobId, Job job, long timeoutNanos) {
+		if (remove(jobId, job)) {
+			expired.incrementAndGet();
+			job.future.completeExceptionally(new TimeoutException(
+					"No " + completionEvent + " event for " + jobId + " within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"));
+		}
+	}
+
+	/**
+	 * @param jobId of the received completion event
+	 * @param event the event
+	 * @return false if no such job is outstanding
+	 */
+	boolean complete(String jobId, EslEvent event) {
+		final Job job = jobId == null ? null : jobs.get(jobId);
+		if (job == null || !remove(jobId, job)) {
+			return false;
+		}
+		completed.incrementAndGet();
+		job.future.complete(event);
+		return true;
+	}
+
+	/**
+	 * Fails a job, if its future is still the one registered under its Job-UUID.
+	 */
+	void fail(String jobId, CompletableFuture<EslEvent> future, Throwable cause) {
+		final Job job = jobs.get(jobId);
+		if (job != null && job.future == future && remove(jobId, job)) {
+			future.completeExceptionally(cause);
+		}
+	}
+
+	void failAll(Throwable cause) {
+		for (Map.Entry<String, Job> entry : jobs.entrySet()) {
+			if (remove(entry.getKey(), entry.getValue())) {
+				entry.getValue().future.completeExceptionally(cause);
+			}
+		}
+	}
+
+	/**
+	 * Fails every job of a channel, once the channel is gone.
+	 *
+	 * @param channelUuid of the channel
+	 * @param cause       of the failure
+	 * @return number of jobs failed
+	 */
+	int failChannel(String channelUuid, Throwable cause) {
+		final Set<String> ids = jobsByChannel.remove(channelUuid);
+		if (ids == null) {
+			return 0;
+		}
+		int failed = 0;
+		for (String jobId : ids) {
+			final Job job = jobs.get(jobId);
+			if (job != null && remove(jobId, job)) {
+				job.future.completeExceptionally(cause);
+				failed++;
+			}
+		}
+		return failed;
+	}
+
+	private boolean remove(String jobId, Job job) {
+		if (!jobs.remove(jobId, job)) {
+			return false;
+		}
+		outstanding.decrementAndGet();
+		if (job.channelUuid != null) {
+			jobsByChannel.computeIfPresent(job.channelUuid, (uuid, ids) -> {
+				ids.remove(jobId);
+				return ids.isEmpty() ? null : ids;
+			});
+		}
+		final Timeout timeout = job.timeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of jobs waiting for their event
+	 */
+	public int getOutstandingCount() {
+		return outstanding.get();
+	}
+
+	/**
+	 * @return maximum number of jobs that may wait for their event
+	 */
+	public int getMaxOutstanding() {
+		return maxOutstanding;
+	}
+
+	/**
+	 * @return number of jobs completed by their event
+	 */
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	/**
+	 * @return number of jobs failed because their event did not arrive in time
+	 */
+	public long getExpiredCount() {
+		return expired.get();
+	}
+
+	/**
+	 * @return number of jobs refused because too many were outstanding
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	private static final class Job {
+		final CompletableFuture<EslEvent> future = new CompletableFuture<>();
+		final String channelUuid;
+		volatile Timeout timeout;
+
+		Job(String channelUuid) {
+			this.channelUuid = channelUuid;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.channel.Channel;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock free submission of commands to a channel.
+ * <p/>
+ * Any number of threads enqueue a command together with the future awaiting its response.  The
+ * channel's event loop is the single consumer: it drains the queue, registering each future as a
+ * pending response immediately before writing its command, so the order of the pending responses
+ * always matches the order of the commands on the wire.  Callers never block and never hold a lock
+ * across a Netty write.
+ */
+class CommandSubmitter {
+
+	// bounds the time a drain can keep the event loop from reading
+	private static final int MAX_WRITES_PER_DRAIN = 256;
+
+	private final Queue<PendingCommand> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger depth = new AtomicInteger();
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+	private final Queue<CompletableFuture<EslMessage>> pendingResponses;
+
+	private volatile WriteCoalescer writeCoalescer;
+
+	/**
+	 * @param pendingResponses queue the futures are moved to as their commands are written
+	 */
+	CommandSubmitter(Queue<CompletableFuture<EslMessage>> pendingResponses) {
+		this.pendingResponses = pendingResponses;
+	}
+
+	void setWriteCoalescer(WriteCoalescer writeCoalescer) {
+		this.writeCoalescer = writeCoalescer;
+	}
+
+	/**
+	 * @return number of commands submitted but not yet handed to the channel
+	 */
+	int depth() {
+		return depth.get();
+	}
+
+	void submit(final Channel channel, Object command, CompletableFuture<EslMessage> future) {
+		queue.offer(new PendingCommand(command, future));
+		depth.incrementAndGet();
+		scheduleDrain(channel);
+	}
+
+	/**
+	 * Enqueues several commands as one unit: the event loop writes them back to back, without any
+	 * other command in between, and flushes them together.
+	 */
+	void submitAll(final Channel channel, List<?> commands, List<CompletableFuture<EslMessage>> futures) {
+		if (commands.isEmpty()) {
+			return;
+		}
+		final PendingCommand head = new PendingCommand(commands.get(0), futures.get(0));
+		PendingCommand tail = head;
+		for (int i = 1; i < commands.size(); i++) {
+			tail.next = new PendingCommand(commands.get(i), futures.get(i));
+			tail = tail.next;
+		}
+		queue.offer(head);
+		depth.addAndGet(commands.size());
+		scheduleDrain(channel);
+	}
+
+	private void scheduleDrain(final Channel channel) {
+		if (drainScheduled.compareAndSet(false, true)) {
+			try {
+				channel.eventLoop().execute(() -> drain(channel));
+			} catch (RejectedExecutionException e) {
+				drainScheduled.set(false);
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * Runs on the event loop only.
+	 */
+	private void drain(Channel channel) {
+		// cleared before polling, so a command offered after the last poll schedules a new drain
+		drainScheduled.set(false);
+		if (!channel.isActive()) {
+			// nothing written now would ever be answered
+			fail(new ClosedChannelException());
+			return;
+		}
+
+		final WriteCoalescer coalescer = writeCoalescer;
+		int written = 0;
+		PendingCommand pending;
+		while (written < MAX_WRITES_PER_DRAIN && (pending = queue.poll()) != null) {
+			// a batch is never split
+			for (; pending != null; pending = pending.next) {
+				depth.decrementAndGet();
+				pendingResponses.add(pending.future);
+				if (coalescer != null) {
+					coalescer.write(channel, pending.command);
+				} else {
+					channel.write(pending.command);
+				}
+				written++;
+			}
+		}
+		if (coalescer == null && written > 0) {
+			channel.flush();
+		}
+		if (!queue.isEmpty()) {
+			scheduleDrain(channel);
+		}
+	}
+
+	/**
+	 * Fails every command that has not been written yet.
+	 *
+	 * @param cause of the failure
+	 */
+	void fail(Throwable cause) {
+		PendingCommand pending;
+		while ((pending = queue.poll()) != null) {
+			for (; pending != null; pending = pending.next) {
+				depth.decrementAndGet();
+				pending.future.completeExceptionally(cause);
+			}
+		}
+	}
+
+	private static final class PendingCommand {
+		final Object command;
+		final CompletableFuture<EslMessage> future;
+		// next command of the same batch
+		PendingCommand next;
+
+		PendingCommand(Object command, CompletableFuture<EslMessage> future) {
+			this.command = command;
+			this.future = future;
+		}
+	}
+}
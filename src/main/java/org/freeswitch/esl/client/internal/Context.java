@@ -2,10 +2,13 @@ package org.freeswitch.esl.client.internal;
 
 import io.netty.channel.Channel;
 import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.EslCommand;
 import org.freeswitch.esl.client.transport.SendMsg;
 import org.freeswitch.esl.client.transport.event.EslEvent;
 import org.freeswitch.esl.client.transport.message.EslMessage;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -36,7 +39,7 @@ public class Context implements IModEslApi {
 	@Override
 	public boolean isConnectionAlive(Integer pingTimeoutSecond) {
 		try {
-			handler.sendApiSingleLineCommand(channel, "api version short").get(pingTimeoutSecond, TimeUnit.SECONDS);
+			handler.sendCommand(channel, new EslCommand("api", "version", "short")).get(pingTimeoutSecond, TimeUnit.SECONDS);
 		} catch (ExecutionException | InterruptedException | TimeoutException e) {
 			return false;
 		}
@@ -54,11 +57,44 @@ public class Context implements IModEslApi {
 	 */
 	public EslMessage sendCommand(String command) {
 
+		try {
+
+			return getUnchecked(sendCommandAsync(command));
+
+		} catch (Throwable t) {
+			throw propagate(t);
+		}
+	}
+
+	/**
+	 * Sends a mod_event_socket command to FreeSWITCH server without waiting for the response.
+	 *
+	 * @param command a mod_event_socket command to send
+	 * @return a {@link CompletableFuture} completed with the command results
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendCommandAsync(String command) {
+
+		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
+
+		return handler.sendCommand(channel, new EslCommand(command.toLowerCase().trim()));
+	}
+
+	/**
+	 * As {@link #sendCommand(String)}, giving up after the supplied timeout.
+	 *
+	 * @param command a mod_event_socket command to send
+	 * @param timeout how long to wait for the response
+	 * @param unit    of timeout
+	 * @return an {@link org.freeswitch.esl.client.transport.message.EslMessage} containing command results
+	 */
+	public EslMessage sendCommand(String command, long timeout, TimeUnit unit) {
+
 		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
 
 		try {
 
-			return getUnchecked(handler.sendApiSingleLineCommand(channel, command.toLowerCase().trim()));
+			return getUnchecked(handler.sendCommand(channel, new EslCommand(command.toLowerCase().trim()), timeout, unit));
 
 		} catch (Throwable t) {
 			throw propagate(t);
@@ -78,17 +114,48 @@ public class Context implements IModEslApi {
 	@Override
 	public EslMessage sendApiCommand(String command, String arg) {
 
+		try {
+
+			return getUnchecked(sendApiCommandAsync(command, arg));
+
+		} catch (Throwable t) {
+			throw propagate(t);
+		}
+	}
+
+	/**
+	 * Sends a FreeSWITCH API command to the server without waiting for the response.  Unlike
+	 * {@link #sendBackgroundApiCommand(String, String)} the command still runs in the foreground on the
+	 * server, delaying the responses to the commands sent after it.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @return a {@link CompletableFuture} completed with the command results
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommandAsync(String command, String arg) {
+
 		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
 
-		try {
+		return handler.sendCommand(channel, new EslCommand("api", command, arg));
+	}
+
+	/**
+	 * As {@link #sendApiCommand(String, String)}, giving up after the supplied timeout.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout how long to wait for the response
+	 * @param unit    of timeout
+	 * @return an {@link org.freeswitch.esl.client.transport.message.EslMessage} containing command results
+	 */
+	public EslMessage sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
 
-			final StringBuilder sb = new StringBuilder();
-			sb.append("api ").append(command);
-			if (!isNullOrEmpty(arg)) {
-				sb.append(' ').append(arg);
-			}
+		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
+
+		try {
 
-			return getUnchecked(handler.sendApiSingleLineCommand(channel, sb.toString()));
+			return getUnchecked(handler.sendCommand(channel, new EslCommand("api", command, arg), timeout, unit));
 
 		} catch (Throwable t) {
 			throw propagate(t);
@@ -111,13 +178,7 @@ public class Context implements IModEslApi {
 
 		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
 
-		final StringBuilder sb = new StringBuilder();
-		sb.append("bgapi ").append(command);
-		if (!isNullOrEmpty(arg)) {
-			sb.append(' ').append(arg);
-		}
-
-		return handler.sendBackgroundApiCommand(channel, sb.toString());
+		return handler.sendBackgroundApiCommand(channel, new EslCommand("bgapi", command, arg));
 	}
 
 	/**
@@ -135,13 +196,7 @@ public class Context implements IModEslApi {
 		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
 		checkArgument(!isNull(jobId), "command cannot be null");
 
-		final StringBuilder sb = new StringBuilder();
-		sb.append("bgapi ").append(command);
-		if (!isNullOrEmpty(arg)) {
-			sb.append(' ').append(arg);
-		}
-
-		return handler.sendBackgroundApiCommand(channel, sb.toString(), jobId);
+		return handler.sendBackgroundApiCommand(channel, new EslCommand("bgapi", command, arg), jobId);
 	}
 
 	/**
@@ -167,13 +222,7 @@ public class Context implements IModEslApi {
 		// temporary hack
 		checkState(format.equals(PLAIN), "Only 'plain' event format is supported at present");
 
-		final StringBuilder sb = new StringBuilder();
-		sb.append("event ").append(format.toString());
-		if (!isNullOrEmpty(events)) {
-			sb.append(' ').append(events);
-		}
-
-		return handler.sendApiSingleLineCommand(channel, sb.toString());
+		return handler.sendCommand(channel, new EslCommand("event", format.toString(), events));
 
 	}
 
@@ -184,7 +233,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CompletableFuture<EslMessage> cancelEventSubscriptions() {
-		return handler.sendApiSingleLineCommand(channel, "noevents");
+		return handler.sendCommand(channel, new EslCommand("noevents"));
 	}
 
 	/**
@@ -212,13 +261,7 @@ public class Context implements IModEslApi {
 
 		checkArgument(!isNullOrEmpty(eventHeader), "eventHeader cannot be null or empty");
 
-		final StringBuilder sb = new StringBuilder();
-		sb.append("filter ").append(eventHeader);
-		if (!isNullOrEmpty(valueToFilter)) {
-			sb.append(' ').append(valueToFilter);
-		}
-
-		return handler.sendApiSingleLineCommand(channel, sb.toString());
+		return handler.sendCommand(channel, new EslCommand("filter", eventHeader, valueToFilter));
 	}
 
 	/**
@@ -233,12 +276,7 @@ public class Context implements IModEslApi {
 
 		checkArgument(!isNullOrEmpty(eventHeader), "eventHeader cannot be null or empty");
 
-		final StringBuilder sb = new StringBuilder();
-		sb.append("filter delete ").append(eventHeader);
-		if (!isNullOrEmpty(valueToFilter)) {
-			sb.append(' ').append(valueToFilter);
-		}
-		return handler.sendApiSingleLineCommand(channel, sb.toString());
+		return handler.sendCommand(channel, new EslCommand("filter", "delete", eventHeader, valueToFilter));
 	}
 
 	/**
@@ -251,10 +289,79 @@ public class Context implements IModEslApi {
 	@Override
 	public CommandResponse sendMessage(SendMsg sendMsg) {
 
+		try {
+			return getUnchecked(sendMessageAsync(sendMsg));
+		} catch (Throwable t) {
+			throw propagate(t);
+		}
+
+	}
+
+	/**
+	 * Send a {@link SendMsg} command to FreeSWITCH without waiting for the response.
+	 *
+	 * @param sendMsg a {@link SendMsg} with call UUID
+	 * @return a {@link CompletableFuture} completed with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> sendMessageAsync(SendMsg sendMsg) {
+
+		checkNotNull(sendMsg, "sendMsg cannot be null");
+
+		return handler.sendMessage(channel, sendMsg)
+				.thenApply(response -> new CommandResponse(sendMsg.toString(), response));
+	}
+
+	/**
+	 * Send several {@link SendMsg} commands in one write, without waiting for any response in between.
+	 *
+	 * @param sendMsgs the messages to send, in order
+	 * @return a {@link CompletableFuture} of each message's response, in the same order
+	 */
+	@Override
+	public List<CompletableFuture<CommandResponse>> sendMessagesAsync(List<SendMsg> sendMsgs) {
+
+		checkNotNull(sendMsgs, "sendMsgs cannot be null");
+
+		final List<CompletableFuture<EslMessage>> responses = handler.sendMessages(channel, sendMsgs);
+		final List<CompletableFuture<CommandResponse>> results = new ArrayList<>(responses.size());
+		for (int i = 0; i < responses.size(); i++) {
+			final SendMsg sendMsg = sendMsgs.get(i);
+			results.add(responses.get(i).thenApply(response -> new CommandResponse(sendMsg.toString(), response)));
+		}
+		return results;
+	}
+
+	/**
+	 * Execute a dialplan application with a {@link SendMsg}, completing once the application has
+	 * finished rather than when it is queued.  The connection must receive the channel's
+	 * CHANNEL_EXECUTE_COMPLETE events.
+	 *
+	 * @param sendMsg an execute {@link SendMsg}, an Event-UUID line is added to it
+	 * @return a {@link CompletableFuture} completed with the CHANNEL_EXECUTE_COMPLETE event
+	 */
+	@Override
+	public CompletableFuture<EslEvent> executeApplicationAsync(SendMsg sendMsg) {
+
+		checkNotNull(sendMsg, "sendMsg cannot be null");
+
+		return handler.executeApplication(channel, sendMsg);
+	}
+
+	/**
+	 * As {@link #sendMessage(SendMsg)}, giving up after the supplied timeout.
+	 *
+	 * @param sendMsg a {@link SendMsg} with call UUID
+	 * @param timeout how long to wait for the response
+	 * @param unit    of timeout
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	public CommandResponse sendMessage(SendMsg sendMsg, long timeout, TimeUnit unit) {
+
 		checkNotNull(sendMsg, "sendMsg cannot be null");
 
 		try {
-			final EslMessage response = getUnchecked(handler.sendApiMultiLineCommand(channel, sendMsg.getMsgLines()));
+			final EslMessage response = getUnchecked(handler.sendMessage(channel, sendMsg, timeout, unit));
 			return new CommandResponse(sendMsg.toString(), response);
 		} catch (Throwable t) {
 			throw propagate(t);
@@ -270,10 +377,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CompletableFuture<EslMessage> setLoggingLevel(LoggingLevel level) {
-		final StringBuilder sb = new StringBuilder();
-		sb.append("log ").append(level.toString());
-
-		return handler.sendApiSingleLineCommand(channel, sb.toString());
+		return handler.sendCommand(channel, new EslCommand("log", level.toString()));
 	}
 
 	/**
@@ -283,7 +387,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CompletableFuture<EslMessage> cancelLogging() {
-		return handler.sendApiSingleLineCommand(channel, "nolog");
+		return handler.sendCommand(channel, new EslCommand("nolog"));
 	}
 
   public void closeChannel() {
@@ -0,0 +1,397 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bounds the number of received events waiting for, or running in, the listener callbacks, so that
+ * slow listeners cannot turn a traffic peak into unbounded heap growth.
+ * <p/>
+ * The depth counts every event from the moment the IO thread dispatches it until its callback
+ * returns.  When the depth reaches the high watermark (the capacity) the {@link OverflowPolicy}
+ * applies.  With {@link OverflowPolicy#BLOCK} the reading of every channel that dispatches while the
+ * queue is full is suspended (Netty autoRead is turned off), so TCP backpressure reaches FreeSWITCH,
+ * until the depth falls back to the low watermark.
+ * <p/>
+ * A command reply arrives on the same stream as the events, behind them, so a channel that has a
+ * command waiting for its reply is read anyway: the replies are still handled on the IO thread,
+ * while the events received meanwhile are parked, in order, until the callbacks make room for them.
+ * At most as many events as the capacity are parked; beyond that reading stops even if a reply is
+ * awaited, and a listener waiting for one resumes once the queue drains (or its command times out).
+ * <p/>
+ * One queue may be shared by many channels.
+ */
+public class EventDispatchQueue {
+
+	/**
+	 * What to do with an event received while the queue is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Accept the event and stop reading from its channel until the queue drains to the low watermark.
+		 * A channel with a command waiting for its reply is still read, parking the events beyond the
+		 * capacity, until as many events as the capacity are parked.
+		 */
+		BLOCK,
+		/**
+		 * Discard the oldest event not yet handed to the listeners to make room for the new one.
+		 */
+		DROP_OLDEST,
+		/**
+		 * Discard the new event.
+		 */
+		DROP_NEWEST,
+		/**
+		 * Throw a {@link RejectedExecutionException} on the IO thread, which closes the connection.
+		 */
+		FAIL
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(EventDispatchQueue.class);
+	private static final AttributeKey<EventDispatchQueue> SUSPENDED_BY = AttributeKey.valueOf("eslEventQueue");
+
+	private final int capacity;
+	private final int lowWatermark;
+	private final OverflowPolicy policy;
+
+	private final AtomicInteger depth = new AtomicInteger();
+	private final AtomicInteger peakDepth = new AtomicInteger();
+	private final AtomicLong dropped = new AtomicLong();
+	// only kept for DROP_OLDEST, in dispatch order; started and dropped events leave it lazily
+	private final Queue<Dispatched> waiting = new ArrayDeque<>();
+	// only kept for BLOCK, the events received while the queue is full, in arrival order
+	private final Queue<Parked> parked = new ArrayDeque<>();
+	// written under the parked lock, and only decremented once the event was handed to its target
+	private volatile int parkedCount;
+	// set while unparking, so that a target running the event inline does not recurse
+	private boolean unparking;
+	private final Set<Channel> paused = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param capacity     high watermark, the depth at which the policy applies
+	 * @param lowWatermark depth at which suspended channels are read again, for {@link OverflowPolicy#BLOCK}
+	 * @param policy       to apply when the queue is full
+	 */
+	public EventDispatchQueue(int capacity, int lowWatermark, OverflowPolicy policy) {
+		checkArgument(capacity > 0, "capacity must be positive");
+		checkArgument(lowWatermark >= 0 && lowWatermark < capacity, "lowWatermark must be between 0 and capacity");
+		this.capacity = capacity;
+		this.lowWatermark = lowWatermark;
+		this.policy = checkNotNull(policy, "policy cannot be null");
+	}
+
+	/**
+	 * @return a queue that never applies any policy, handing each event straight to its target
+	 * without keeping track of it
+	 */
+	public static EventDispatchQueue unbounded() {
+		return new EventDispatchQueue(Integer.MAX_VALUE, Integer.MAX_VALUE - 1, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Called on the IO thread of the channel the event was received on.
+	 *
+	 * @param channel the event was received on
+	 * @param target  runs the callback, eg the serial lane of the event
+	 * @param task    the listener callback
+	 * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#FAIL}
+	 */
+	public void dispatch(Channel channel, Executor target, Runnable task) {
+		if (capacity == Integer.MAX_VALUE) {
+			// unbounded, the depth can never reach the capacity
+			target.execute(task);
+			return;
+		}
+		if (depth.get() >= capacity) {
+			switch (policy) {
+				case DROP_NEWEST:
+					dropped.incrementAndGet();
+					return;
+				case DROP_OLDEST:
+					dropOldest();
+					break;
+				case FAIL:
+					throw new RejectedExecutionException("Event queue full, " + capacity + " events pending");
+				default:
+					break;
+			}
+		}
+
+		if (policy == OverflowPolicy.BLOCK && (parkedCount > 0 || depth.get() >= capacity)) {
+			// behind the events already parked, which only this IO thread parks for its channel
+			synchronized (parked) {
+				parked.offer(new Parked(target, task));
+				parkedCount++;
+				unpark();
+			}
+			resumeIfDrained();
+			suspendIfFull(channel);
+			return;
+		}
+
+		final Dispatched dispatched = new Dispatched(task);
+		updatePeak(depth.incrementAndGet());
+		if (policy == OverflowPolicy.DROP_OLDEST) {
+			enqueueWaiting(dispatched);
+		}
+		try {
+			target.execute(dispatched);
+		} catch (RuntimeException e) {
+			dispatched.drop();
+			throw e;
+		}
+		if (policy == OverflowPolicy.BLOCK) {
+			suspendIfFull(channel);
+		}
+	}
+
+	/**
+	 * Called after a command is sent on a channel, whose reply follows the events on the stream: read
+	 * the channel again if the queue suspended it and still has room to park events.
+	 */
+	static void readForReply(final Channel channel) {
+		final EventDispatchQueue queue = channel.attr(SUSPENDED_BY).get();
+		if (queue == null) {
+			return;
+		}
+		// on the IO thread, so that no event is parked between the check and the resume
+		if (channel.eventLoop().inEventLoop()) {
+			queue.resumeForReply(channel);
+		} else {
+			channel.eventLoop().execute(() -> queue.resumeForReply(channel));
+		}
+	}
+
+	private void resumeForReply(Channel channel) {
+		if (parkedCount < capacity && paused.remove(channel)) {
+			channel.config().setAutoRead(true);
+		}
+	}
+
+	private static boolean isAwaitingReply(Channel channel) {
+		final AbstractEslClientHandler handler = channel.pipeline().get(AbstractEslClientHandler.class);
+		return handler != null && handler.isAwaitingReply();
+	}
+
+	private void suspendIfFull(Channel channel) {
+		if ((parkedCount > 0 || depth.get() >= capacity) && channel.config().isAutoRead()
+				&& (parkedCount >= capacity || !isAwaitingReply(channel))) {
+			log.debug("Event queue full, suspending reads of [{}]", channel);
+			channel.attr(SUSPENDED_BY).set(this);
+			channel.config().setAutoRead(false);
+			paused.add(channel);
+			// the queue may have drained, or a command been sent, before the channel was recorded as paused
+			resumeIfDrained();
+			if (isAwaitingReply(channel)) {
+				resumeForReply(channel);
+			}
+		}
+	}
+
+	/**
+	 * Hand parked events to their targets while there is room, called with the parked lock held.
+	 */
+	private void unpark() {
+		if (unparking) {
+			return;
+		}
+		unparking = true;
+		try {
+			Parked next;
+			while (depth.get() < capacity && (next = parked.poll()) != null) {
+				final Dispatched dispatched = new Dispatched(next.task);
+				updatePeak(depth.incrementAndGet());
+				try {
+					next.target.execute(dispatched);
+				} catch (RuntimeException e) {
+					log.error("Cannot dispatch a parked event", e);
+					dispatched.drop();
+				} finally {
+					parkedCount--;
+				}
+			}
+		} finally {
+			unparking = false;
+		}
+	}
+
+	private void dropOldest() {
+		synchronized (waiting) {
+			Dispatched oldest;
+			while ((oldest = waiting.poll()) != null) {
+				if (oldest.drop()) {
+					dropped.incrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+
+	private void enqueueWaiting(Dispatched dispatched) {
+		synchronized (waiting) {
+			Dispatched head;
+			while ((head = waiting.peek()) != null && !head.isWaiting()) {
+				waiting.poll();
+			}
+			// events of other lanes may finish behind a waiting head, sweep them once in a while
+			if (waiting.size() - capacity > capacity) {
+				final Iterator<Dispatched> it = waiting.iterator();
+				while (it.hasNext()) {
+					if (!it.next().isWaiting()) {
+						it.remove();
+					}
+				}
+			}
+			waiting.offer(dispatched);
+		}
+	}
+
+	private void updatePeak(int current) {
+		int peak;
+		while (current > (peak = peakDepth.get()) && !peakDepth.compareAndSet(peak, current)) {
+			// retry
+		}
+	}
+
+	private void finished() {
+		depth.decrementAndGet();
+		if (parkedCount > 0) {
+			synchronized (parked) {
+				unpark();
+			}
+		}
+		resumeIfDrained();
+	}
+
+	private void resumeIfDrained() {
+		if (depth.get() <= lowWatermark && parkedCount == 0 && !paused.isEmpty()) {
+			resumePaused();
+		}
+	}
+
+	private void resumePaused() {
+		for (Channel channel : paused) {
+			if (paused.remove(channel)) {
+				log.debug("Event queue drained, resuming reads of [{}]", channel);
+				channel.config().setAutoRead(true);
+			}
+		}
+	}
+
+	/**
+	 * @return number of events dispatched whose callbacks have not returned yet, always 0 for an
+	 * {@link #unbounded()} queue
+	 */
+	public int getDepth() {
+		return depth.get();
+	}
+
+	/**
+	 * @return number of events received while the queue was full, and not dispatched yet
+	 */
+	public int getParkedCount() {
+		return parkedCount;
+	}
+
+	/**
+	 * @return largest depth seen
+	 */
+	public int getPeakDepth() {
+		return peakDepth.get();
+	}
+
+	/**
+	 * @return the capacity, the depth at which the overflow policy applies
+	 */
+	public int getHighWatermark() {
+		return capacity;
+	}
+
+	/**
+	 * @return the depth at which suspended channels are read again
+	 */
+	public int getLowWatermark() {
+		return lowWatermark;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return number of events discarded by the {@link OverflowPolicy#DROP_OLDEST} and
+	 * {@link OverflowPolicy#DROP_NEWEST} policies
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return number of channels currently not read because the queue is full
+	 */
+	public int getSuspendedChannelCount() {
+		return paused.size();
+	}
+
+	private static final class Parked {
+		private final Executor target;
+		private final Runnable task;
+
+		Parked(Executor target, Runnable task) {
+			this.target = target;
+			this.task = task;
+		}
+	}
+
+	private final class Dispatched implements Runnable {
+		private static final int WAITING = 0;
+		private static final int STARTED = 1;
+		private static final int DROPPED = 2;
+
+		private final Runnable task;
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		Dispatched(Runnable task) {
+			this.task = task;
+		}
+
+		boolean drop() {
+			if (state.compareAndSet(WAITING, DROPPED)) {
+				finished();
+				return true;
+			}
+			return false;
+		}
+
+		boolean isWaiting() {
+			return state.get() == WAITING;
+		}
+
+		@Override
+		public void run() {
+			if (!state.compareAndSet(WAITING, STARTED)) {
+				return;
+			}
+			try {
+				task.run();
+			} finally {
+				finished();
+			}
+		}
+	}
+}
@@ -2,12 +2,13 @@ package org.freeswitch.esl.client.internal;
 
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.SendMsg;
-import org.freeswitch.esl.client.transport.event.EslEvent;
 import org.freeswitch.esl.client.transport.message.EslMessage;
 
-import java.util.concurrent.CompletableFuture;
-
-public interface IModEslApi {
+/**
+ * The mod_event_socket api, both the blocking methods and the non-blocking ones inherited from
+ * {@link IModEslAsyncApi}.
+ */
+public interface IModEslApi extends IModEslAsyncApi {
 
 	enum EventFormat {
 
@@ -51,27 +52,9 @@ public interface IModEslApi {
 
 	}
 
-	boolean canSend();
-
 	boolean isConnectionAlive(Integer pingTimeoutSecond);
 
 	EslMessage sendApiCommand(String command, String arg);
 
-	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg);
-
-	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, String jobId);
-
-	CompletableFuture<EslMessage> setEventSubscriptions(EventFormat format, String events);
-
-	CompletableFuture<EslMessage> cancelEventSubscriptions();
-
-	CompletableFuture<EslMessage> addEventFilter(String eventHeader, String valueToFilter);
-
-	CompletableFuture<EslMessage> deleteEventFilter(String eventHeader, String valueToFilter);
-
 	CommandResponse sendMessage(SendMsg sendMsg);
-
-	CompletableFuture<EslMessage> setLoggingLevel(LoggingLevel level);
-
-	CompletableFuture<EslMessage> cancelLogging();
 }
@@ -0,0 +1,51 @@
+package org.freeswitch.esl.client.internal;
+
+import org.freeswitch.esl.client.internal.IModEslApi.EventFormat;
+import org.freeswitch.esl.client.internal.IModEslApi.LoggingLevel;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The mod_event_socket api without any blocking call: every command returns as soon as it is
+ * queued, with a future completed by the connection's event loop when the response arrives.
+ * Commands are sent and answered in the order they are issued, so any number of them can be in
+ * flight on one connection without a thread waiting for each.
+ * <p/>
+ * Callbacks attached with the non-async {@link CompletableFuture} methods run on the event loop
+ * and must not block; use the {@code *Async} variants to move the work elsewhere.
+ */
+public interface IModEslAsyncApi {
+
+	boolean canSend();
+
+	CompletableFuture<EslMessage> sendCommandAsync(String command);
+
+	CompletableFuture<EslMessage> sendApiCommandAsync(String command, String arg);
+
+	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg);
+
+	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, String jobId);
+
+	CompletableFuture<EslMessage> setEventSubscriptions(EventFormat format, String events);
+
+	CompletableFuture<EslMessage> cancelEventSubscriptions();
+
+	CompletableFuture<EslMessage> addEventFilter(String eventHeader, String valueToFilter);
+
+	CompletableFuture<EslMessage> deleteEventFilter(String eventHeader, String valueToFilter);
+
+	CompletableFuture<CommandResponse> sendMessageAsync(SendMsg sendMsg);
+
+	List<CompletableFuture<CommandResponse>> sendMessagesAsync(List<SendMsg> sendMsgs);
+
+	CompletableFuture<EslEvent> executeApplicationAsync(SendMsg sendMsg);
+
+	CompletableFuture<EslMessage> setLoggingLevel(LoggingLevel level);
+
+	CompletableFuture<EslMessage> cancelLogging();
+}
@@ -0,0 +1,222 @@
+package org.freeswitch.esl.client.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Single producer, multiple consumer dispatch over a preallocated ring of reusable slots, in the
+ * style of the LMAX Disruptor.  Publishing an event claims the next slot, fills it in place and
+ * advances the cursor: there is no task object and no queue node allocated per event, and no lock.
+ * <p/>
+ * Every published slot carries a lane, and each consumer thread only handles the slots of its own
+ * lanes, so slots of the same lane are handled in publication order while the consumers run in
+ * parallel.  Each consumer tracks the sequence it has reached; the producer waits, using the same
+ * {@link WaitStrategy}, when it would overwrite a slot the slowest consumer has not passed yet.
+ * <p/>
+ * {@link #next()}, {@link #get(long)} and {@link #publish(long, int)} must only be called by one
+ * thread at a time, which is the case for the IO thread of a single connection.  Handlers must not
+ * keep a reference to a slot after returning, as it is reused.
+ *
+ * @param <E> type of the slots
+ */
+public final class RingBufferDispatcher<E> {
+
+	/**
+	 * How a thread waits for the next slot (or, for the producer, for free room).
+	 */
+	public enum WaitStrategy {
+		/**
+		 * Spin on the sequence, lowest latency at the cost of a fully busy core per consumer.
+		 */
+		BUSY_SPIN,
+		/**
+		 * Spin, yielding the processor between checks.
+		 */
+		YIELD,
+		/**
+		 * Park for a short while between checks, cheapest on CPU.
+		 */
+		PARK
+	}
+
+	/**
+	 * Handles the content of a published slot on a consumer thread.
+	 */
+	public interface Handler<E> {
+		void onEvent(E slot);
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(RingBufferDispatcher.class);
+	private static final long PARK_NANOS = 50_000;
+
+	private final Object[] slots;
+	private final int[] lanes;
+	private final int mask;
+	private final Handler<E> handler;
+	private final WaitStrategy waitStrategy;
+
+	private final AtomicLong cursor = new AtomicLong(-1);
+	private final AtomicLong[] consumerSequences;
+	private final Thread[] consumers;
+	private volatile boolean running;
+
+	// producer only
+	private long claimed = -1;
+	private long cachedGatingSequence = -1;
+
+	/**
+	 * @param size          number of slots, a power of two
+	 * @param consumerCount number of consumer threads
+	 * @param slotFactory   creates the preallocated slots
+	 * @param handler       handles each published slot
+	 * @param waitStrategy  of the consumers and the producer
+	 * @param threadFactory creates the consumer threads
+	 */
+	public RingBufferDispatcher(int size, int consumerCount, Supplier<E> slotFactory, Handler<E> handler,
+								WaitStrategy waitStrategy, ThreadFactory threadFactory) {
+		checkArgument(size > 0 && Integer.bitCount(size) == 1, "size must be a power of two");
+		checkArgument(consumerCount > 0, "consumerCount must be positive");
+		this.slots = new Object[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = slotFactory.get();
+		}
+		this.lanes = new int[size];
+		this.mask = size - 1;
+		this.handler = checkNotNull(handler, "handler cannot be null");
+		this.waitStrategy = checkNotNull(waitStrategy, "waitStrategy cannot be null");
+
+		this.consumerSequences = new AtomicLong[consumerCount];
+		this.consumers = new Thread[consumerCount];
+		for (int i = 0; i < consumerCount; i++) {
+			final int consumer = i;
+			consumerSequences[i] = new AtomicLong(-1);
+			consumers[i] = threadFactory.newThread(() -> consume(consumer));
+		}
+	}
+
+	public synchronized void start() {
+		checkState(!running, "already started");
+		running = true;
+		for (Thread consumer : consumers) {
+			consumer.start();
+		}
+	}
+
+	/**
+	 * Stops the consumer threads, slots published but not yet handled are abandoned.
+	 */
+	public synchronized void halt() {
+		running = false;
+		for (Thread consumer : consumers) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Claims the next slot, waiting for the slowest consumer to free it if the ring is full.
+	 *
+	 * @return sequence of the claimed slot
+	 */
+	public long next() {
+		final long next = claimed + 1;
+		final long wrapPoint = next - slots.length;
+		if (wrapPoint > cachedGatingSequence) {
+			long gating;
+			while (wrapPoint > (gating = minimumConsumerSequence())) {
+				if (!running) {
+					throw new IllegalStateException("Dispatcher halted");
+				}
+				idle();
+			}
+			cachedGatingSequence = gating;
+		}
+		claimed = next;
+		return next;
+	}
+
+	/**
+	 * @param sequence of a claimed slot
+	 * @return the slot, to fill in before publishing it
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(long sequence) {
+		return (E) slots[(int) sequence & mask];
+	}
+
+	/**
+	 * Makes a claimed slot visible to the consumers.
+	 *
+	 * @param sequence of the claimed slot
+	 * @param lane     of the slot, slots of equal lanes are handled in order by the same consumer
+	 */
+	public void publish(long sequence, int lane) {
+		lanes[(int) sequence & mask] = lane;
+		// the volatile write makes the slot and lane visible to the consumers
+		cursor.set(sequence);
+	}
+
+	/**
+	 * @return number of slots published and not yet passed by every consumer
+	 */
+	public long getBacklog() {
+		return cursor.get() - minimumConsumerSequence();
+	}
+
+	public int getSize() {
+		return slots.length;
+	}
+
+	private long minimumConsumerSequence() {
+		long minimum = Long.MAX_VALUE;
+		for (AtomicLong sequence : consumerSequences) {
+			minimum = Math.min(minimum, sequence.get());
+		}
+		return minimum;
+	}
+
+	private void consume(int consumer) {
+		final AtomicLong sequence = consumerSequences[consumer];
+		final int consumerCount = consumers.length;
+		long next = sequence.get() + 1;
+		while (running) {
+			final long available = cursor.get();
+			if (available < next) {
+				idle();
+				continue;
+			}
+			for (; next <= available; next++) {
+				if ((lanes[(int) next & mask] & Integer.MAX_VALUE) % consumerCount == consumer) {
+					try {
+						handler.onEvent(get(next));
+					} catch (Throwable t) {
+						log.warn("Event handler failed", t);
+					}
+				}
+			}
+			// releases the handled slots to the producer
+			sequence.lazySet(available);
+		}
+	}
+
+	private void idle() {
+		switch (waitStrategy) {
+			case YIELD:
+				Thread.yield();
+				break;
+			case PARK:
+				LockSupport.parkNanos(PARK_NANOS);
+				break;
+			default:
+				break;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package org.freeswitch.esl.client.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs tasks one at a time, in submission order, on top of a shared {@link Executor}.  Many serial
+ * executors can share a single thread pool: each only occupies a pool thread while it has tasks,
+ * and gives the thread back after a bounded batch so that busy lanes cannot starve the others.
+ * <p/>
+ * A task that throws is logged and does not stop the tasks queued behind it.
+ */
+public class SerialExecutor implements Executor {
+
+	private static final Logger log = LoggerFactory.getLogger(SerialExecutor.class);
+	private static final int MAX_TASKS_PER_RUN = 64;
+
+	private final Executor executor;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * @param executor that runs the tasks
+	 */
+	public SerialExecutor(Executor executor) {
+		this.executor = checkNotNull(executor, "executor cannot be null");
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		tasks.offer(checkNotNull(task, "task cannot be null"));
+		schedule();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::runTasks);
+			} catch (RuntimeException e) {
+				scheduled.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private void runTasks() {
+		try {
+			Runnable task;
+			for (int i = 0; i < MAX_TASKS_PER_RUN && (task = tasks.poll()) != null; i++) {
+				try {
+					task.run();
+				} catch (Throwable t) {
+					log.warn("Task failed", t);
+				}
+			}
+		} finally {
+			// cleared before checking, so a task offered meanwhile is either seen here or schedules itself
+			scheduled.set(false);
+			if (!tasks.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+}
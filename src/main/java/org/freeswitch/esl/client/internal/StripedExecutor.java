@@ -0,0 +1,55 @@
+package org.freeswitch.esl.client.internal;
+
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Spreads tasks over a fixed number of {@link SerialExecutor} lanes sharing one {@link Executor}.
+ * Tasks submitted with equal keys always land on the same lane and so run in submission order,
+ * while tasks with unrelated keys run in parallel.
+ */
+public class StripedExecutor {
+
+	private final SerialExecutor[] lanes;
+
+	/**
+	 * @param laneCount number of serial lanes
+	 * @param executor  that runs the tasks of all lanes
+	 */
+	public StripedExecutor(int laneCount, Executor executor) {
+		checkArgument(laneCount > 0, "laneCount must be positive");
+		this.lanes = new SerialExecutor[laneCount];
+		for (int i = 0; i < laneCount; i++) {
+			lanes[i] = new SerialExecutor(executor);
+		}
+	}
+
+	/**
+	 * @param key  selects the lane, null uses the first one
+	 * @param task to run after the tasks previously submitted to the same lane
+	 */
+	public void execute(Object key, Runnable task) {
+		lanes[laneOf(key)].execute(task);
+	}
+
+	/**
+	 * @param key selects the lane, null uses the first one
+	 * @return the lane tasks with this key run on
+	 */
+	public Executor laneFor(Object key) {
+		return lanes[laneOf(key)];
+	}
+
+	public int getLaneCount() {
+		return lanes.length;
+	}
+
+	private int laneOf(Object key) {
+		if (key == null) {
+			return 0;
+		}
+		final int hash = key.hashCode();
+		return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % lanes.length;
+	}
+}
@@ -0,0 +1,80 @@
+package org.freeswitch.esl.client.internal;
+
+import com.google.common.base.Throwables;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for Java 8.
+ * <p/>
+ * {@code Thread.ofVirtual()} and {@code Executors.newThreadPerTaskExecutor(ThreadFactory)} are looked
+ * up once, by reflection, so the same classes run on every runtime and report whether virtual
+ * threads are there.
+ */
+public final class VirtualThreads {
+
+	// all null when the running JVM has no (enabled) virtual threads
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+		try {
+			final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			builderName = builder.getMethod("name", String.class, long.class);
+			builderFactory = builder.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			// a preview on Java 19 and 20, which throws unless previews are enabled
+			ofVirtual.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = ofVirtual != null ? builderName : null;
+		BUILDER_FACTORY = ofVirtual != null ? builderFactory : null;
+		NEW_THREAD_PER_TASK_EXECUTOR = ofVirtual != null ? newThreadPerTaskExecutor : null;
+	}
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return true if the running JVM supports virtual threads
+	 */
+	public static boolean isAvailable() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * An executor starting a new virtual thread for each task, so that tasks may block without
+	 * holding a platform thread.
+	 *
+	 * @param namePrefix prefix of the thread names, followed by a sequence number
+	 * @return the executor
+	 * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+		if (!isAvailable()) {
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+					+ System.getProperty("java.version"));
+		}
+		try {
+			final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, BUILDER_FACTORY.invoke(builder));
+		} catch (InvocationTargetException e) {
+			throw Throwables.propagate(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot create virtual threads", e);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.channel.Channel;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Batches writes issued in the same event loop tick (or within a maximum delay) into a single
+ * flush, so that commands fired concurrently from many threads share one syscall.
+ * <p/>
+ * Only used on the channel's event loop, by the {@link CommandSubmitter} that keeps the writes in
+ * step with the order of the pending response queue.
+ */
+class WriteCoalescer {
+
+	private final int maxBatch;
+	private final long maxDelayNanos;
+
+	private int unflushed;
+	private boolean flushScheduled;
+
+	/**
+	 * @param maxBatch maximum number of writes before a flush is forced
+	 * @param maxDelay maximum time a write may wait for its flush, 0 to flush at the end of the current tick
+	 * @param unit     of maxDelay
+	 */
+	WriteCoalescer(int maxBatch, long maxDelay, TimeUnit unit) {
+		checkArgument(maxBatch > 0, "maxBatch must be positive");
+		checkArgument(maxDelay >= 0, "maxDelay cannot be negative");
+		this.maxBatch = maxBatch;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+	}
+
+	void write(final Channel channel, Object msg) {
+		channel.write(msg);
+		if (++unflushed >= maxBatch) {
+			flush(channel);
+		} else if (!flushScheduled) {
+			flushScheduled = true;
+			final Runnable flushTask = () -> {
+				flushScheduled = false;
+				flush(channel);
+			};
+			if (maxDelayNanos > 0) {
+				channel.eventLoop().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+			} else {
+				// runs after the writes already queued in this tick
+				channel.eventLoop().execute(flushTask);
+			}
+		}
+	}
+
+	private void flush(Channel channel) {
+		if (unflushed > 0) {
+			unflushed = 0;
+			channel.flush();
+		}
+	}
+}
@@ -3,38 +3,221 @@ package org.freeswitch.esl.client.outbound;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.string.StringEncoder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.freeswitch.esl.client.internal.EventDispatchQueue;
+import org.freeswitch.esl.client.internal.EventDispatchQueue.OverflowPolicy;
+import org.freeswitch.esl.client.internal.VirtualThreads;
+import org.freeswitch.esl.client.transport.message.EslCommandEncoder;
 import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 public class OutboundChannelInitializer extends ChannelInitializer<SocketChannel> {
 
+    /**
+     * Number of idle threads the default callback pool keeps for the next sessions.
+     */
+    public static final int DEFAULT_IDLE_CALLBACK_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Time a thread of the default callback pool beyond the idle ones may stay idle, in seconds.
+     */
+    public static final long DEFAULT_CALLBACK_KEEP_ALIVE_SECONDS = 60;
+
     private final IClientHandlerFactory clientHandlerFactory;
-    private ExecutorService callbackExecutor = Executors.newSingleThreadExecutor();
+    private ExecutorService callbackExecutor = newCallbackPool(
+            DEFAULT_IDLE_CALLBACK_THREADS, DEFAULT_CALLBACK_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    private boolean ownsCallbackExecutor = true;
+    private boolean lazyEventParsing = false;
+    private int writeCoalescingMaxBatch = 0;
+    private long writeCoalescingMaxDelayMicros = 0;
+    private long defaultCommandTimeoutMillis = 0;
+    private int backgroundJobMaxOutstanding = 100_000;
+    private long backgroundJobTimeoutMillis = TimeUnit.MINUTES.toMillis(10);
+    private boolean backgroundJobAutoSubscribe = true;
+    private EventDispatchQueue eventQueue = EventDispatchQueue.unbounded();
 
     public OutboundChannelInitializer(IClientHandlerFactory clientHandlerFactory) {
         this.clientHandlerFactory = clientHandlerFactory;
     }
 
+    /**
+     * A pool that starts a thread whenever every thread is busy, since handlers block on commands and
+     * one session must never wait for another, and lets the threads beyond the idle ones die once
+     * they have been idle for the keep alive time.
+     */
+    private static ExecutorService newCallbackPool(int idleThreads, long keepAlive, TimeUnit unit) {
+        return new ThreadPoolExecutor(idleThreads, Integer.MAX_VALUE, keepAlive, unit, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("esl-outbound-worker-%d").build());
+    }
+
+    /**
+     * Set the worker pool shared by all sessions.  The callbacks of each session run one at a time on
+     * a serial lane of this pool, so a pool of N threads runs up to N sessions in parallel: handlers
+     * that block on commands need a pool that grows with the number of calls.  By default a thread is
+     * started whenever all are busy, and {@link #DEFAULT_IDLE_CALLBACK_THREADS} of them are kept once
+     * the calls are over.
+     *
+     * @param callbackExecutor runs the client handler callbacks
+     */
     public OutboundChannelInitializer setCallbackExecutor(ExecutorService callbackExecutor) {
+        replaceCallbackExecutor(callbackExecutor, false);
+        return this;
+    }
+
+    /**
+     * Tune the default worker pool shared by all sessions, which still starts a thread whenever all
+     * of them are busy.
+     *
+     * @param idleThreads number of idle threads kept for the next sessions
+     * @param keepAlive   time the other threads may stay idle before they stop
+     * @param unit        of keepAlive
+     */
+    public OutboundChannelInitializer setIdleCallbackThreads(int idleThreads, long keepAlive, TimeUnit unit) {
+        checkArgument(idleThreads >= 0, "idleThreads cannot be negative");
+        checkArgument(keepAlive > 0, "keepAlive must be positive");
+        replaceCallbackExecutor(newCallbackPool(idleThreads, keepAlive, unit), true);
+        return this;
+    }
+
+    private void replaceCallbackExecutor(ExecutorService callbackExecutor, boolean owned) {
+        if (ownsCallbackExecutor) {
+            this.callbackExecutor.shutdown();
+        }
         this.callbackExecutor = callbackExecutor;
+        this.ownsCallbackExecutor = owned;
+    }
+
+    /**
+     * Run each session's handler callbacks on virtual threads, so that handlers written in blocking
+     * style (such as {@link org.freeswitch.esl.client.dptools.Execute}) only hold a platform thread
+     * while they are actually running, and many thousands of sessions can wait on FreeSWITCH at
+     * once.  The callbacks of a session still run one at a time, in order.
+     *
+     * @throws UnsupportedOperationException if the JVM is older than Java 21
+     */
+    public OutboundChannelInitializer useVirtualThreads() {
+        replaceCallbackExecutor(VirtualThreads.newThreadPerTaskExecutor("esl-outbound-session-"), true);
         return this;
     }
 
+    /**
+     * Bound the number of received events, over all sessions, waiting for (or running in) the
+     * handler callbacks.  By default the queue is unbounded.
+     *
+     * @param capacity     high watermark, the number of pending events at which the policy applies
+     * @param lowWatermark number of pending events at which reading resumes, for {@link OverflowPolicy#BLOCK}
+     * @param policy       what to do with events received while the queue is full
+     */
+    public OutboundChannelInitializer setEventQueueBound(int capacity, int lowWatermark, OverflowPolicy policy) {
+        this.eventQueue = new EventDispatchQueue(capacity, lowWatermark, policy);
+        return this;
+    }
+
+    /**
+     * @return the queue of received events, to monitor its depth
+     */
+    public EventDispatchQueue getEventDispatchQueue() {
+        return eventQueue;
+    }
+
+    /**
+     * Parse the headers of received events on demand rather than up front.
+     */
+    public OutboundChannelInitializer setLazyEventParsing(boolean lazyEventParsing) {
+        this.lazyEventParsing = lazyEventParsing;
+        return this;
+    }
+
+    /**
+     * Opt in to batching commands issued in the same IO tick into a single flush.
+     *
+     * @param maxBatch maximum number of commands written before a flush is forced, 0 to disable
+     * @param maxDelay maximum time a command may wait to be flushed, 0 to flush at the end of the tick
+     * @param unit     of maxDelay
+     */
+    public OutboundChannelInitializer setWriteCoalescing(int maxBatch, long maxDelay, TimeUnit unit) {
+        this.writeCoalescingMaxBatch = maxBatch;
+        this.writeCoalescingMaxDelayMicros = unit.toMicros(maxDelay);
+        return this;
+    }
+
+    /**
+     * Deadline for the response to every command sent without an explicit timeout.
+     *
+     * @param timeout default deadline, 0 for none
+     * @param unit    of timeout
+     */
+    public OutboundChannelInitializer setDefaultCommandTimeout(long timeout, TimeUnit unit) {
+        this.defaultCommandTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Bound the background api jobs of each session waiting for their BACKGROUND_JOB event.
+     *
+     * @param maxOutstanding maximum number of outstanding jobs per session
+     * @param timeout        default time a job may wait for its event, 0 for no deadline
+     * @param unit           of timeout
+     */
+    public OutboundChannelInitializer setBackgroundJobLimits(int maxOutstanding, long timeout, TimeUnit unit) {
+        this.backgroundJobMaxOutstanding = maxOutstanding;
+        this.backgroundJobTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Subscribe each session to BACKGROUND_JOB events when its first background api command is
+     * sent, on by default.
+     *
+     * @param autoSubscribe false if the sessions manage the subscription themselves
+     */
+    public OutboundChannelInitializer setBackgroundJobAutoSubscribe(boolean autoSubscribe) {
+        this.backgroundJobAutoSubscribe = autoSubscribe;
+        return this;
+    }
+
+    /**
+     * Stops the callback executor created by this initializer once the pending callbacks have run.
+     * An executor set with {@link #setCallbackExecutor(ExecutorService)} belongs to the caller and
+     * is left running.
+     */
+    public void shutdown() {
+        if (ownsCallbackExecutor) {
+            callbackExecutor.shutdown();
+        }
+    }
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
         // Add the text line codec combination first
-        pipeline.addLast("encoder", new StringEncoder());
+        pipeline.addLast("encoder", new EslCommandEncoder());
         // Note that outbound mode requires the decoder to treat many 'headers' as body lines
         pipeline.addLast("decoder", new EslFrameDecoder(8092, true));
 
         // now the outbound client logic
-        pipeline.addLast("clientHandler",
-                new OutboundClientHandler(
-                        clientHandlerFactory.createClientHandler(),
-                        callbackExecutor));
+        pipeline.addLast("clientHandler", newClientHandler());
+    }
+
+    /**
+     * @return the handler of a new session, configured with the settings of this initializer
+     */
+    OutboundClientHandler newClientHandler() {
+        OutboundClientHandler handler = new OutboundClientHandler(
+                clientHandlerFactory.createClientHandler(),
+                callbackExecutor,
+                eventQueue);
+        handler.setLazyEventParsing(lazyEventParsing);
+        handler.setWriteCoalescing(writeCoalescingMaxBatch, writeCoalescingMaxDelayMicros, TimeUnit.MICROSECONDS);
+        handler.setDefaultCommandTimeout(defaultCommandTimeoutMillis, TimeUnit.MILLISECONDS);
+        handler.setBackgroundJobLimits(backgroundJobMaxOutstanding, backgroundJobTimeoutMillis, TimeUnit.MILLISECONDS);
+        handler.setBackgroundJobAutoSubscribe(backgroundJobAutoSubscribe);
+        return handler;
     }
 }
@@ -18,7 +18,10 @@ package org.freeswitch.esl.client.outbound;
 import io.netty.channel.ChannelHandlerContext;
 import org.freeswitch.esl.client.internal.AbstractEslClientHandler;
 import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.internal.EventDispatchQueue;
+import org.freeswitch.esl.client.internal.SerialExecutor;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
 import org.freeswitch.esl.client.transport.message.EslMessage;
 
 import java.util.concurrent.ExecutorService;
@@ -30,6 +33,9 @@ import java.util.concurrent.ExecutorService;
  * To send a 'connect' command when the FreeSWITCH server first establishes a new connection with
  * the socket client in Outbound mode.  This will result in an incoming {@link EslMessage} that is
  * transformed into an {@link EslEvent} that sub classes can handle.
+ * <li>
+ * To run the {@link IClientHandler} callbacks of its session one at a time, in order, on a serial lane
+ * of the shared callback executor, so that a session never blocks the others.
  * </ul>
  * Note: implementation requirement is that an {@link ExecutionHandler} is placed in the processing
  * pipeline prior to this handler. This will ensure that each incoming message is processed in its
@@ -38,11 +44,18 @@ import java.util.concurrent.ExecutorService;
 class OutboundClientHandler extends AbstractEslClientHandler {
 
 	private final IClientHandler clientHandler;
-	private final ExecutorService callbackExecutor;
+	private final SerialExecutor sessionExecutor;
+	private final EventDispatchQueue eventQueue;
 
 	public OutboundClientHandler(IClientHandler clientHandler, ExecutorService callbackExecutor) {
+		this(clientHandler, callbackExecutor, EventDispatchQueue.unbounded());
+	}
+
+	public OutboundClientHandler(IClientHandler clientHandler, ExecutorService callbackExecutor,
+								 EventDispatchQueue eventQueue) {
 		this.clientHandler = clientHandler;
-		this.callbackExecutor = callbackExecutor;
+		this.sessionExecutor = new SerialExecutor(callbackExecutor);
+		this.eventQueue = eventQueue;
 	}
 
 	@Override
@@ -53,10 +66,15 @@ class OutboundClientHandler extends AbstractEslClientHandler {
 		log.debug("Received new connection from server, sending connect message");
 
 		sendApiSingleLineCommand(ctx.channel(), "connect")
-				.thenAcceptAsync(response -> {
+				.thenApply(response -> {
+					final EslEvent channelData = new EslEvent(response, true);
+					setSessionChannelUuid(channelData.getEventHeaders().get(EslEventHeaderNames.UNIQUE_ID));
+					return channelData;
+				})
+				.thenAcceptAsync(channelData -> {
 					clientHandler.onConnect(new Context(ctx.channel(), OutboundClientHandler.this),
-						new EslEvent(response, true));
-					})
+						channelData);
+					}, sessionExecutor)
 				.exceptionally(throwable -> {
 					log.warn("send connect [{}]", throwable);
 					ctx.channel().close();
@@ -67,7 +85,7 @@ class OutboundClientHandler extends AbstractEslClientHandler {
 
 	@Override
 	protected void handleEslEvent(final ChannelHandlerContext ctx, final EslEvent event) {
-		callbackExecutor.execute(() -> clientHandler.onEslEvent(
+		eventQueue.dispatch(ctx.channel(), sessionExecutor, () -> clientHandler.onEslEvent(
 				new Context(ctx.channel(), OutboundClientHandler.this), event));
 	}
 
@@ -17,6 +17,7 @@ package org.freeswitch.esl.client.outbound;
 
 import com.google.common.util.concurrent.AbstractService;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
@@ -42,14 +43,23 @@ public class SocketClient extends AbstractService {
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
 	private final EventLoopGroup bossGroup;
 	private final EventLoopGroup workerGroup;
-	private final IClientHandlerFactory clientHandlerFactory;
+	private final OutboundChannelInitializer channelInitializer;
 	private final SocketAddress bindAddress;
 
 	private Channel serverChannel;
 
 	public SocketClient(SocketAddress bindAddress, IClientHandlerFactory clientHandlerFactory) {
+		this(bindAddress, new OutboundChannelInitializer(clientHandlerFactory));
+	}
+
+	/**
+	 * @param bindAddress        address to accept outbound connections from FreeSWITCH on
+	 * @param channelInitializer a configured initializer, eg with a callback executor set, or running
+	 *                           the sessions on virtual threads
+	 */
+	public SocketClient(SocketAddress bindAddress, OutboundChannelInitializer channelInitializer) {
 		this.bindAddress = bindAddress;
-		this.clientHandlerFactory = clientHandlerFactory;
+		this.channelInitializer = channelInitializer;
 		this.bossGroup = new NioEventLoopGroup();
 		this.workerGroup = new NioEventLoopGroup();
 	}
@@ -59,9 +69,10 @@ public class SocketClient extends AbstractService {
 		final ServerBootstrap bootstrap = new ServerBootstrap()
 				.group(bossGroup, workerGroup)
 				.channel(NioServerSocketChannel.class)
-				.childHandler(new OutboundChannelInitializer(clientHandlerFactory))
+				.childHandler(channelInitializer)
 				.childOption(ChannelOption.TCP_NODELAY, true)
-				.childOption(ChannelOption.SO_KEEPALIVE, true);
+				.childOption(ChannelOption.SO_KEEPALIVE, true)
+				.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
 
 		serverChannel = bootstrap.bind(bindAddress).syncUninterruptibly().channel();
 		notifyStarted();
@@ -75,6 +86,7 @@ public class SocketClient extends AbstractService {
 		}
 		workerGroup.shutdownGracefully();
 		bossGroup.shutdownGracefully();
+		channelInitializer.shutdown();
 		notifyStopped();
 		log.info("SocketClient stopped");
 	}
@@ -0,0 +1,136 @@
+package org.freeswitch.esl.client.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A command to send to the FreeSWITCH Event Socket, kept as its separate parts so that it can be
+ * written straight to the wire by the
+ * {@link org.freeswitch.esl.client.transport.message.EslCommandEncoder} without building an
+ * intermediate String.  On the wire a command looks like:
+ * <pre>
+ *   token token token
+ *   Header-Name: value      (optional, zero or more)
+ *   (empty line)
+ * </pre>
+ * Null or empty tokens are skipped, so optional arguments can be passed as is.
+ */
+public final class EslCommand {
+	private final CharSequence[] tokens;
+	private List<CharSequence> headers;
+	private List<CharSequence> lines;
+
+	/**
+	 * @param tokens parts of the command line, written separated by a single space
+	 */
+	public EslCommand(CharSequence... tokens) {
+		this.tokens = tokens;
+	}
+
+	/**
+	 * A command made of pre-formatted lines, the first being the command line itself.
+	 *
+	 * @param commandLines lines to send, without line terminators
+	 * @return the command
+	 */
+	public static EslCommand ofLines(List<? extends CharSequence> commandLines) {
+		final EslCommand command = new EslCommand(commandLines.isEmpty() ? "" : commandLines.get(0));
+		for (int i = 1; i < commandLines.size(); i++) {
+			command.addLine(commandLines.get(i));
+		}
+		return command;
+	}
+
+	/**
+	 * Adds the following line to the command:
+	 * <pre>
+	 *   name: value
+	 * </pre>
+	 *
+	 * @param name  of the header
+	 * @param value of the header
+	 * @return this command
+	 */
+	public EslCommand addHeader(CharSequence name, CharSequence value) {
+		if (headers == null) {
+			headers = new ArrayList<>(2);
+		}
+		headers.add(name);
+		headers.add(value);
+		return this;
+	}
+
+	/**
+	 * A copy of this command with the following line added, leaving this command as it is:
+	 * <pre>
+	 *   name: value
+	 * </pre>
+	 *
+	 * @param name  of the header
+	 * @param value of the header
+	 * @return the new command
+	 */
+	public EslCommand withHeader(CharSequence name, CharSequence value) {
+		final EslCommand copy = new EslCommand(tokens);
+		if (headers != null) {
+			copy.headers = new ArrayList<>(headers);
+		}
+		if (lines != null) {
+			copy.lines = new ArrayList<>(lines);
+		}
+		return copy.addHeader(name, value);
+	}
+
+	/**
+	 * Adds a pre-formatted line to the command.
+	 *
+	 * @param line to add, without line terminator
+	 * @return this command
+	 */
+	public EslCommand addLine(CharSequence line) {
+		if (lines == null) {
+			lines = new ArrayList<>(2);
+		}
+		lines.add(line);
+		return this;
+	}
+
+	/**
+	 * @return tokens of the command line, may contain null or empty tokens that are not sent
+	 */
+	public CharSequence[] getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * @return alternating header names and values, may be empty
+	 */
+	public List<CharSequence> getHeaders() {
+		return headers == null ? Collections.<CharSequence>emptyList() : headers;
+	}
+
+	/**
+	 * @return any pre-formatted lines following the command line, may be empty
+	 */
+	public List<CharSequence> getLines() {
+		return lines == null ? Collections.<CharSequence>emptyList() : lines;
+	}
+
+	/**
+	 * @return the command line as it will be sent, for logging
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (CharSequence token : tokens) {
+			if (token != null && token.length() > 0) {
+				if (sb.length() > 0) {
+					sb.append(' ');
+				}
+				sb.append(token);
+			}
+		}
+		return sb.toString();
+	}
+}
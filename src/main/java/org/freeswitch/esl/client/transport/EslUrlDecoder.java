@@ -0,0 +1,182 @@
+package org.freeswitch.esl.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Percent decoder for the URL encoded header values of FreeSWITCH 'plain' events.
+ * <p/>
+ * Produces the same result as {@link java.net.URLDecoder#decode(String, String)} with UTF-8 for
+ * well formed input, but:
+ * <ul><li>
+ * a value without any '%' or '+' is returned as is, without allocating
+ * </li><li>
+ * values can be decoded straight from the received bytes
+ * </li><li>
+ * escaped bytes are collected into a reusable buffer, one per decoder instance (the static methods
+ * use one decoder per thread)
+ * </li><li>
+ * a malformed escape sequence is kept literally instead of failing the whole event
+ * </li></ul>
+ * Instances are not thread safe.
+ */
+public final class EslUrlDecoder {
+
+	private static final ThreadLocal<EslUrlDecoder> DECODERS = ThreadLocal.withInitial(EslUrlDecoder::new);
+
+	private byte[] buffer = new byte[128];
+
+	/**
+	 * Decode a header value.
+	 *
+	 * @param value URL encoded value
+	 * @return the decoded value, or the same instance if it contained nothing to decode
+	 */
+	public static String decode(String value) {
+		return DECODERS.get().decodeValue(value);
+	}
+
+	/**
+	 * Decode a header value directly from UTF-8 encoded bytes.
+	 *
+	 * @param source array holding the URL encoded value
+	 * @param offset of the value in the array
+	 * @param length of the value in bytes
+	 * @return the decoded value
+	 */
+	public static String decode(byte[] source, int offset, int length) {
+		return DECODERS.get().decodeValue(source, offset, length);
+	}
+
+	/**
+	 * As {@link #decode(String)}, using this decoder's buffer.
+	 */
+	public String decodeValue(String value) {
+		final int length = value.length();
+		int i = 0;
+		while (i < length) {
+			final char ch = value.charAt(i);
+			if (ch == '%' || ch == '+') {
+				break;
+			}
+			i++;
+		}
+		if (i == length) {
+			// fast path, nothing to decode
+			return value;
+		}
+
+		// worst case every remaining char is a 4 byte UTF-8 sequence
+		ensureCapacity(i + (length - i) * 4);
+		int count = 0;
+		for (int j = 0; j < i; j++) {
+			count = putChar(value, j, count);
+		}
+		while (i < length) {
+			final char ch = value.charAt(i);
+			int high;
+			int low;
+			if (ch == '+') {
+				buffer[count++] = ' ';
+			} else if (ch == '%' && i + 2 < length
+					&& (high = hexValue(value.charAt(i + 1))) >= 0 && (low = hexValue(value.charAt(i + 2))) >= 0) {
+				buffer[count++] = (byte) ((high << 4) | low);
+				i += 2;
+			} else {
+				count = putChar(value, i, count);
+				if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+					i++;
+				}
+			}
+			i++;
+		}
+		return new String(buffer, 0, count, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * As {@link #decode(byte[], int, int)}, using this decoder's buffer.
+	 */
+	public String decodeValue(byte[] source, int offset, int length) {
+		final int end = offset + length;
+		boolean ascii = true;
+		int i = offset;
+		while (i < end) {
+			final byte b = source[i];
+			if (b == '%' || b == '+') {
+				break;
+			}
+			if (b < 0) {
+				ascii = false;
+			}
+			i++;
+		}
+		if (i == end) {
+			// fast path, nothing to decode
+			return new String(source, offset, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+		}
+
+		ensureCapacity(length);
+		int count = i - offset;
+		System.arraycopy(source, offset, buffer, 0, count);
+		while (i < end) {
+			final byte b = source[i];
+			int high;
+			int low;
+			if (b == '+') {
+				buffer[count++] = ' ';
+			} else if (b == '%' && i + 2 < end
+					&& (high = hexValue((char) source[i + 1])) >= 0 && (low = hexValue((char) source[i + 2])) >= 0) {
+				buffer[count++] = (byte) ((high << 4) | low);
+				i += 2;
+			} else {
+				buffer[count++] = b;
+			}
+			i++;
+		}
+		return new String(buffer, 0, count, StandardCharsets.UTF_8);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (buffer.length < capacity) {
+			buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+		}
+	}
+
+	/**
+	 * Append the UTF-8 encoding of the char (or surrogate pair) at {@code index}.
+	 */
+	private int putChar(String value, int index, int count) {
+		final char ch = value.charAt(index);
+		if (ch < 0x80) {
+			buffer[count++] = (byte) ch;
+		} else if (ch < 0x800) {
+			buffer[count++] = (byte) (0xc0 | (ch >> 6));
+			buffer[count++] = (byte) (0x80 | (ch & 0x3f));
+		} else if (Character.isHighSurrogate(ch) && index + 1 < value.length()
+				&& Character.isLowSurrogate(value.charAt(index + 1))) {
+			final int cp = Character.toCodePoint(ch, value.charAt(index + 1));
+			buffer[count++] = (byte) (0xf0 | (cp >> 18));
+			buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+			buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+			buffer[count++] = (byte) (0x80 | (cp & 0x3f));
+		} else {
+			buffer[count++] = (byte) (0xe0 | (ch >> 12));
+			buffer[count++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+			buffer[count++] = (byte) (0x80 | (ch & 0x3f));
+		}
+		return count;
+	}
+
+	private static int hexValue(char ch) {
+		if (ch >= '0' && ch <= '9') {
+			return ch - '0';
+		}
+		if (ch >= 'a' && ch <= 'f') {
+			return ch - 'a' + 10;
+		}
+		if (ch >= 'A' && ch <= 'F') {
+			return ch - 'A' + 10;
+		}
+		return -1;
+	}
+}
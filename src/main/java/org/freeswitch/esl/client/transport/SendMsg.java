@@ -20,7 +20,7 @@ import java.util.List;
 
 public class SendMsg {
 	private final List<String> msgLines = new ArrayList<>();
-	private final boolean hasUuid;
+	private final String uuid;
 
 	/**
 	 * Constructor for use with outbound socket client only.  This client mode does not need a call
@@ -28,7 +28,7 @@ public class SendMsg {
 	 */
 	public SendMsg() {
 		msgLines.add("sendmsg");
-		hasUuid = false;
+		uuid = null;
 	}
 
 	/**
@@ -38,7 +38,12 @@ public class SendMsg {
 	 */
 	public SendMsg(String uuid) {
 		msgLines.add("sendmsg " + uuid);
-		hasUuid = true;
+		this.uuid = uuid;
+	}
+
+	private SendMsg(SendMsg other) {
+		msgLines.addAll(other.msgLines);
+		uuid = other.uuid;
 	}
 
 	/**
@@ -130,6 +135,34 @@ public class SendMsg {
 		return this;
 	}
 
+	/**
+	 * Adds the following line to the message:
+	 * <pre>
+	 *   Event-UUID: uuid
+	 * </pre>
+	 * FreeSWITCH reports it as the Application-UUID of the CHANNEL_EXECUTE and
+	 * CHANNEL_EXECUTE_COMPLETE events of the executed application.
+	 *
+	 * @param uuid the string uuid identifying this execution
+	 */
+	public SendMsg addEventUuid(String uuid) {
+		msgLines.add("Event-UUID: " + uuid);
+		return this;
+	}
+
+	/**
+	 * A copy of this message with the following line added, leaving this message as it is:
+	 * <pre>
+	 *   Event-UUID: uuid
+	 * </pre>
+	 *
+	 * @param uuid the string uuid identifying this execution
+	 * @return the new message
+	 */
+	public SendMsg withEventUuid(String uuid) {
+		return new SendMsg(this).addEventUuid(uuid);
+	}
+
 	/**
 	 * A generic method to add a message line. The constructed line in the sent message will be in the
 	 * form:
@@ -160,7 +193,14 @@ public class SendMsg {
 	 * @return true if constructed with a UUID.
 	 */
 	public boolean hasUuid() {
-		return hasUuid;
+		return uuid != null;
+	}
+
+	/**
+	 * @return UUID of the call the message is sent to, null if constructed without one
+	 */
+	public String getUuid() {
+		return uuid;
 	}
 
 	@Override
@@ -15,6 +15,8 @@
  */
 package org.freeswitch.esl.client.transport.event;
 
+import io.netty.buffer.ByteBuf;
+import org.freeswitch.esl.client.transport.EslUrlDecoder;
 import org.freeswitch.esl.client.transport.HeaderParser;
 import org.freeswitch.esl.client.transport.message.EslHeaders;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
@@ -23,8 +25,6 @@ import org.freeswitch.esl.client.transport.message.EslMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -46,6 +46,9 @@ import static com.google.common.base.Objects.toStringHelper;
  * Any eventBody lines are cached in a list.
  * <p/>
  * The messageHeader lines from the original message are cached in a map keyed by {@link EslHeaders.Name}.
+ * <p/>
+ * When constructed with lazy headers, the eventHeader lines are only indexed, and each value is decoded
+ * the first time it is read through {@link #getEventHeaders()} or one of the convenience methods.
  *
  * @see EslEventHeaderNames
  */
@@ -54,7 +57,7 @@ public class EslEvent {
 
 	private final Map<Name, String> messageHeaders;
 	private final Map<String, String> eventHeaders;
-	private final List<String> eventBody;
+	private List<String> eventBody;
 	private boolean decodeEventHeaders = true;
 
 	public EslEvent(EslMessage rawMessage) {
@@ -62,16 +65,31 @@ public class EslEvent {
 	}
 
 	public EslEvent(EslMessage rawMessage, boolean parseCommandReply) {
+		this(rawMessage, parseCommandReply, false);
+	}
+
+	/**
+	 * @param rawMessage        the message carrying the event
+	 * @param parseCommandReply also accept a 'command/reply' message, as sent in reply to an outbound 'connect'
+	 * @param lazyHeaders       only index the event header lines, and decode each value when it is first
+	 *                          asked for.  Falls back to eager parsing when the raw body is not available.
+	 */
+	public EslEvent(EslMessage rawMessage, boolean parseCommandReply, boolean lazyHeaders) {
 		messageHeaders = rawMessage.getHeaders();
-		eventHeaders = new HashMap<>(rawMessage.getBodyLines().size());
-		eventBody = new ArrayList<>();
 		// plain or xml body
-		if (rawMessage.getContentType().equals(Value.TEXT_EVENT_PLAIN)) {
-			parsePlainBody(rawMessage.getBodyLines());
+		if (rawMessage.getContentType().equals(Value.TEXT_EVENT_PLAIN)
+				|| (rawMessage.getContentType().equals(Value.COMMAND_REPLY) && parseCommandReply)) {
+			// a released message may still have its body decoded into lines
+			final ByteBuf rawBody = lazyHeaders && rawMessage.refCnt() > 0 ? rawMessage.getRawBody() : null;
+			if (rawBody != null) {
+				eventHeaders = new LazyEventHeaders(rawBody);
+			} else {
+				eventHeaders = new HashMap<>(rawMessage.getBodyLines().size());
+				eventBody = new ArrayList<>();
+				parsePlainBody(rawMessage.getBodyLines());
+			}
 		} else if (rawMessage.getContentType().equals(Value.TEXT_EVENT_XML)) {
 			throw new IllegalStateException("XML events are not yet supported");
-		} else if (rawMessage.getContentType().equals(Value.COMMAND_REPLY) && parseCommandReply) {
-			parsePlainBody(rawMessage.getBodyLines());
 		} else {
 			throw new IllegalStateException("Unexpected EVENT content-type: " +
 				rawMessage.getContentType());
@@ -106,6 +124,9 @@ public class EslEvent {
 	 * @return list of decoded event body lines, may be an empty list.
 	 */
 	public List<String> getEventBodyLines() {
+		if (eventBody == null) {
+			eventBody = ((LazyEventHeaders) eventHeaders).decodeBodyLines();
+		}
 		return eventBody;
 	}
 
@@ -151,7 +172,7 @@ public class EslEvent {
 	 * @return true if the eventBody list is not empty.
 	 */
 	public boolean hasEventBody() {
-		return !eventBody.isEmpty();
+		return !getEventBodyLines().isEmpty();
 	}
 
 	private void parsePlainBody(final List<String> rawBodyLines) {
@@ -161,15 +182,10 @@ public class EslEvent {
 				// split the line
 				String[] headerParts = HeaderParser.splitHeader(rawLine);
 				if (decodeEventHeaders) {
-					try {
-						String decodedValue = URLDecoder.decode(headerParts[1], "UTF-8");
-						log.trace("decoded from: [{}]", headerParts[1]);
-						log.trace("decoded   to: [{}]", decodedValue);
-						eventHeaders.put(headerParts[0], decodedValue);
-					} catch (UnsupportedEncodingException e) {
-						log.warn("Could not URL decode [{}]", headerParts[1]);
-						eventHeaders.put(headerParts[0], headerParts[1]);
-					}
+					String decodedValue = EslUrlDecoder.decode(headerParts[1]);
+					log.trace("decoded from: [{}]", headerParts[1]);
+					log.trace("decoded   to: [{}]", decodedValue);
+					eventHeaders.put(headerParts[0], decodedValue);
 				} else {
 					eventHeaders.put(headerParts[0], headerParts[1]);
 				}
@@ -193,7 +209,7 @@ public class EslEvent {
 				.add("name", getEventName())
 				.add("headers", messageHeaders.size())
 				.add("eventHeaders", eventHeaders.size())
-				.add("eventBody", eventBody.size() + " lines")
+				.add("eventBody", getEventBodyLines().size() + " lines")
 				.toString();
 	}
 }
@@ -26,6 +26,10 @@ public class EslEventHeaderNames {
 	 * {@code "Event-Name"}
 	 */
 	public static final String EVENT_NAME = "Event-Name";
+	/**
+	 * {@code "Event-Subclass"}
+	 */
+	public static final String EVENT_SUBCLASS = "Event-Subclass";
 	/**
 	 * {@code "Event-Date-Local"}
 	 */
@@ -66,6 +70,14 @@ public class EslEventHeaderNames {
 	 * {@code "Core-UUID"}
 	 */
 	public static final String CORE_UUID = "Core-UUID";
+	/**
+	 * {@code "Application-UUID"}
+	 */
+	public static final String APPLICATION_UUID = "Application-UUID";
+	/**
+	 * {@code "Application-Response"}
+	 */
+	public static final String APPLICATION_RESPONSE = "Application-Response";
 	/**
 	 * {@code "Content-Length"}
 	 */
@@ -78,6 +90,10 @@ public class EslEventHeaderNames {
 	 * {@code "Job-UUID"}
 	 */
 	public static final String JOB_UUID = "Job-UUID";
+	/**
+	 * {@code "Unique-ID"}
+	 */
+	public static final String UNIQUE_ID = "Unique-ID";
 
 	private EslEventHeaderNames() {
 		/* private class */
@@ -0,0 +1,112 @@
+package org.freeswitch.esl.client.transport.event;
+
+import com.google.common.base.Objects;
+import io.netty.buffer.ByteBuf;
+import org.freeswitch.esl.client.transport.EslUrlDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The few headers of a 'plain' event needed to decide where it goes, read straight from the raw
+ * frame of an {@link EslMessage} before (and instead of) parsing the whole event.
+ * <p/>
+ * Only the event's own header lines are scanned, and the scan stops as soon as the event name is
+ * known, or for {@code CUSTOM} events once the subclass is too, which for FreeSWITCH events is
+ * within the first few lines.
+ */
+public final class EventRoutingHeaders {
+
+	private static final byte LF = '\n';
+	private static final String CUSTOM = "CUSTOM";
+	private static final byte[] EVENT_NAME = EslEventHeaderNames.EVENT_NAME.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] EVENT_SUBCLASS = EslEventHeaderNames.EVENT_SUBCLASS.getBytes(StandardCharsets.US_ASCII);
+
+	private final String eventName;
+	private final String eventSubclass;
+
+	private EventRoutingHeaders(String eventName, String eventSubclass) {
+		this.eventName = eventName;
+		this.eventSubclass = eventSubclass;
+	}
+
+	/**
+	 * @param message a {@code text/event-plain} message, not yet released
+	 * @return the routing headers of the event, or null if the message has no raw frame to peek at
+	 */
+	public static EventRoutingHeaders peek(EslMessage message) {
+		final ByteBuf body = message.getRawBody();
+		if (body == null) {
+			return null;
+		}
+
+		String eventName = null;
+		String eventSubclass = null;
+		final int end = body.writerIndex();
+		int index = body.readerIndex();
+		while (index < end && (eventName == null || (eventSubclass == null && eventName.equals(CUSTOM)))) {
+			int eol = body.indexOf(index, end, LF);
+			if (eol < 0) {
+				eol = end;
+			}
+			if (eol == index) {
+				// end of the event headers
+				break;
+			}
+			final int colon = body.indexOf(index, eol, (byte) ':');
+			if (colon > index) {
+				if (eventName == null && nameEquals(body, index, colon, EVENT_NAME)) {
+					eventName = value(body, colon, eol);
+				} else if (eventSubclass == null && nameEquals(body, index, colon, EVENT_SUBCLASS)) {
+					eventSubclass = value(body, colon, eol);
+				}
+			}
+			index = eol + 1;
+		}
+		return new EventRoutingHeaders(eventName, eventSubclass);
+	}
+
+	private static boolean nameEquals(ByteBuf buffer, int start, int end, byte[] name) {
+		if (end - start != name.length) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (buffer.getByte(start + i) != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String value(ByteBuf buffer, int colon, int eol) {
+		int start = colon + 1;
+		while (start < eol && buffer.getByte(start) == ' ') {
+			start++;
+		}
+		final byte[] bytes = new byte[eol - start];
+		buffer.getBytes(start, bytes);
+		return EslUrlDecoder.decode(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * @return value of the {@code Event-Name} header, null if absent
+	 */
+	public String getEventName() {
+		return eventName;
+	}
+
+	/**
+	 * @return value of the {@code Event-Subclass} header of {@code CUSTOM} events, null if absent
+	 */
+	public String getEventSubclass() {
+		return eventSubclass;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this)
+				.add("eventName", eventName)
+				.add("eventSubclass", eventSubclass)
+				.toString();
+	}
+}
@@ -0,0 +1,236 @@
+package org.freeswitch.esl.client.transport.event;
+
+import io.netty.buffer.ByteBuf;
+import org.freeswitch.esl.client.transport.EslUrlDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Event header map that indexes the header lines of a raw 'text/event-plain' body, and only
+ * materializes and URL decodes a header value when it is asked for.
+ * <p/>
+ * The body bytes are copied once so that the event can outlive the receive buffer.  Lookups by
+ * name compare the hash and bytes of the indexed header names, without building name strings.
+ * Iteration, {@link #size()} or any modification first materializes a plain {@link HashMap}, which
+ * is used from then on.
+ * <p/>
+ * Header lines are split in the same way as {@link org.freeswitch.esl.client.transport.HeaderParser},
+ * and as in the eager parser a later header with the same name replaces an earlier one.
+ */
+class LazyEventHeaders extends AbstractMap<String, String> {
+	private static final byte LF = 10;
+
+	private final byte[] frame;
+	private int count;
+	private int[] nameHashes = new int[32];
+	// start and end offsets of name and value, four per header
+	private int[] offsets = new int[32 * 4];
+	private String[] values = new String[32];
+	// offset of the first event body line, or frame length if there is none
+	private int bodyStart;
+
+	private volatile Map<String, String> materialized;
+
+	LazyEventHeaders(ByteBuf rawBody) {
+		frame = new byte[rawBody.readableBytes()];
+		rawBody.getBytes(rawBody.readerIndex(), frame);
+		index();
+	}
+
+	@Override
+	public String get(Object key) {
+		final Map<String, String> map = materialized;
+		if (map != null) {
+			return map.get(key);
+		}
+		final int i = find(key);
+		return i < 0 ? null : value(i);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		final Map<String, String> map = materialized;
+		if (map != null) {
+			return map.containsKey(key);
+		}
+		return find(key) >= 0;
+	}
+
+	@Override
+	public String put(String key, String value) {
+		return materialize().put(key, value);
+	}
+
+	@Override
+	public int size() {
+		return materialize().size();
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		return materialize().entrySet();
+	}
+
+	/**
+	 * The event body lines, being any lines following the event's own Content-Length header. Blank
+	 * lines are skipped.
+	 */
+	List<String> decodeBodyLines() {
+		final List<String> lines = new ArrayList<>();
+		int lineStart = bodyStart;
+		while (lineStart < frame.length) {
+			int lineEnd = lineEnd(lineStart);
+			if (lineEnd > lineStart) {
+				lines.add(new String(frame, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+			}
+			lineStart = lineEnd + 1;
+		}
+		return lines;
+	}
+
+	private synchronized Map<String, String> materialize() {
+		if (materialized == null) {
+			final Map<String, String> map = new HashMap<>(count);
+			for (int i = 0; i < count; i++) {
+				map.put(name(i), value(i));
+			}
+			materialized = map;
+		}
+		return materialized;
+	}
+
+	private void index() {
+		final int length = frame.length;
+		int lineStart = 0;
+		while (lineStart < length) {
+			int lineEnd = lineEnd(lineStart);
+			final int name = indexLine(lineStart, lineEnd);
+			lineStart = lineEnd + 1;
+			if (nameEquals(name, EslEventHeaderNames.CONTENT_LENGTH)) {
+				// the remaining lines will be considered body lines
+				break;
+			}
+		}
+		bodyStart = Math.min(lineStart, length);
+	}
+
+	private int lineEnd(int lineStart) {
+		for (int i = lineStart; i < frame.length; i++) {
+			if (frame[i] == LF) {
+				return i;
+			}
+		}
+		return frame.length;
+	}
+
+	private int indexLine(int lineStart, int lineEnd) {
+		int nameStart = findNonWhitespace(lineStart, lineEnd);
+		int nameEnd;
+		int hash = 0;
+		boolean ascii = true;
+		for (nameEnd = nameStart; nameEnd < lineEnd; nameEnd++) {
+			char ch = (char) (frame[nameEnd] & 0xff);
+			if (ch == ':' || Character.isWhitespace(ch)) {
+				break;
+			}
+			// same as String.hashCode() of the decoded name, as long as it is ASCII
+			hash = 31 * hash + ch;
+			ascii &= ch < 0x80;
+		}
+		if (!ascii) {
+			hash = new String(frame, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8).hashCode();
+		}
+
+		int colonEnd;
+		for (colonEnd = nameEnd; colonEnd < lineEnd; colonEnd++) {
+			if (frame[colonEnd] == ':') {
+				colonEnd++;
+				break;
+			}
+		}
+
+		int valueStart = findNonWhitespace(colonEnd, lineEnd);
+		int valueEnd = valueStart;
+		if (valueStart < lineEnd) {
+			for (valueEnd = lineEnd; valueEnd > valueStart; valueEnd--) {
+				if (!Character.isWhitespace((char) (frame[valueEnd - 1] & 0xff))) {
+					break;
+				}
+			}
+		}
+
+		if (count == nameHashes.length) {
+			nameHashes = Arrays.copyOf(nameHashes, count * 2);
+			offsets = Arrays.copyOf(offsets, count * 8);
+			values = Arrays.copyOf(values, count * 2);
+		}
+		nameHashes[count] = hash;
+		offsets[count * 4] = nameStart;
+		offsets[count * 4 + 1] = nameEnd;
+		offsets[count * 4 + 2] = valueStart;
+		offsets[count * 4 + 3] = valueEnd;
+		return count++;
+	}
+
+	private int findNonWhitespace(int offset, int end) {
+		int result;
+		for (result = offset; result < end; result++) {
+			if (!Character.isWhitespace((char) (frame[result] & 0xff))) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	private int find(Object key) {
+		if (!(key instanceof String)) {
+			return -1;
+		}
+		final String name = (String) key;
+		final int hash = name.hashCode();
+		// search backwards, the last header with a given name wins
+		for (int i = count - 1; i >= 0; i--) {
+			if (nameHashes[i] == hash && nameEquals(i, name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean nameEquals(int i, String name) {
+		final int start = offsets[i * 4];
+		final int length = offsets[i * 4 + 1] - start;
+		for (int j = 0; j < length; j++) {
+			final int b = frame[start + j] & 0xff;
+			if (b >= 0x80) {
+				return name(i).equals(name);
+			}
+			if (j >= name.length() || b != name.charAt(j)) {
+				return false;
+			}
+		}
+		return length == name.length();
+	}
+
+	private String name(int i) {
+		final int start = offsets[i * 4];
+		return new String(frame, start, offsets[i * 4 + 1] - start, StandardCharsets.UTF_8);
+	}
+
+	private String value(int i) {
+		String value = values[i];
+		if (value == null) {
+			final int start = offsets[i * 4 + 2];
+			value = EslUrlDecoder.decode(frame, start, offsets[i * 4 + 3] - start);
+			values[i] = value;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,121 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.SendMsg;
+
+import java.util.List;
+
+/**
+ * Encoder used by the IO processing pipeline. Client consumers should never need to use
+ * this class.
+ * <p/>
+ * Writes {@link EslCommand} and {@link SendMsg} objects directly into a (pooled, if the channel is
+ * configured with a pooled allocator) {@link ByteBuf} as UTF-8, adding the line and message
+ * terminators, without building an intermediate String.  Any other {@link CharSequence} is written
+ * as is, and is expected to already be terminated.
+ */
+@ChannelHandler.Sharable
+public class EslCommandEncoder extends MessageToByteEncoder<Object> {
+
+	private static final byte LF = '\n';
+	private static final byte SPACE = ' ';
+	private static final byte[] HEADER_SEPARATOR = {':', ' '};
+
+	@Override
+	public boolean acceptOutboundMessage(Object msg) throws Exception {
+		return msg instanceof EslCommand || msg instanceof SendMsg || msg instanceof CharSequence;
+	}
+
+	@Override
+	protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, Object msg, boolean preferDirect) throws Exception {
+		// size for the common ASCII case, the buffer grows if needed
+		final int capacity = estimateLength(msg);
+		return preferDirect ? ctx.alloc().ioBuffer(capacity) : ctx.alloc().heapBuffer(capacity);
+	}
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+		if (msg instanceof EslCommand) {
+			encodeCommand((EslCommand) msg, out);
+		} else if (msg instanceof SendMsg) {
+			encodeLines(((SendMsg) msg).getMsgLines(), out);
+			out.writeByte(LF);
+		} else {
+			writeText(out, (CharSequence) msg);
+		}
+	}
+
+	private static void encodeCommand(EslCommand command, ByteBuf out) {
+		boolean first = true;
+		for (CharSequence token : command.getTokens()) {
+			if (token == null || token.length() == 0) {
+				continue;
+			}
+			if (!first) {
+				out.writeByte(SPACE);
+			}
+			writeText(out, token);
+			first = false;
+		}
+		out.writeByte(LF);
+
+		final List<CharSequence> headers = command.getHeaders();
+		for (int i = 0; i < headers.size(); i += 2) {
+			writeText(out, headers.get(i));
+			out.writeBytes(HEADER_SEPARATOR);
+			writeText(out, headers.get(i + 1));
+			out.writeByte(LF);
+		}
+		encodeLines(command.getLines(), out);
+		out.writeByte(LF);
+	}
+
+	private static void encodeLines(List<? extends CharSequence> lines, ByteBuf out) {
+		for (CharSequence line : lines) {
+			writeText(out, line);
+			out.writeByte(LF);
+		}
+	}
+
+	/**
+	 * Commands are almost always ASCII, which can be written without reserving room for
+	 * multi-byte sequences.
+	 */
+	private static void writeText(ByteBuf out, CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				ByteBufUtil.writeUtf8(out, text);
+				return;
+			}
+		}
+		ByteBufUtil.writeAscii(out, text);
+	}
+
+	private static int estimateLength(Object msg) {
+		int length = 2;
+		if (msg instanceof EslCommand) {
+			final EslCommand command = (EslCommand) msg;
+			for (CharSequence token : command.getTokens()) {
+				length += token == null ? 0 : token.length() + 1;
+			}
+			for (CharSequence part : command.getHeaders()) {
+				length += part.length() + 2;
+			}
+			for (CharSequence line : command.getLines()) {
+				length += line.length() + 1;
+			}
+		} else if (msg instanceof SendMsg) {
+			for (String line : ((SendMsg) msg).getMsgLines()) {
+				length += line.length() + 1;
+			}
+		} else {
+			length += ((CharSequence) msg).length();
+		}
+		return length;
+	}
+}
@@ -16,14 +16,17 @@
 package org.freeswitch.esl.client.transport.message;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.CharsetUtil;
 import org.freeswitch.esl.client.transport.HeaderParser;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.Charset;
 import java.util.List;
 
 /**
@@ -44,8 +47,12 @@ import java.util.List;
  *    Loop until receive buffer size is >= Content-length
  *    Extract content-length bytes from buffer and process
  * </pre>
+ * The receive buffer is scanned ahead for the end of the header block, and nothing is consumed
+ * until a complete header block (or a complete Content-Length body) is available.  Bytes already
+ * scanned are remembered between reads, so a frame arriving in many TCP segments is only ever
+ * scanned once.
  */
-public class EslFrameDecoder extends ReplayingDecoder<EslFrameDecoder.State> {
+public class EslFrameDecoder extends ByteToMessageDecoder {
 	/**
 	 * Line feed character
 	 */
@@ -56,13 +63,21 @@ public class EslFrameDecoder extends ReplayingDecoder<EslFrameDecoder.State> {
 		READ_BODY,
 	}
 
+	private static final ByteBufProcessor FIND_NON_ASCII = new ByteBufProcessor() {
+		@Override
+		public boolean process(byte value) throws Exception {
+			return value >= 0;
+		}
+	};
+
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
 	private final int maxHeaderSize;
+	private final HeaderBlockFinder headerBlockFinder = new HeaderBlockFinder();
+	private State state = State.READ_HEADER;
 	private EslMessage currentMessage;
 	private boolean treatUnknownHeadersAsBody = false;
 
 	public EslFrameDecoder(int maxHeaderSize) {
-		super(State.READ_HEADER);
 		if (maxHeaderSize <= 0) {
 			throw new IllegalArgumentException(
 				"maxHeaderSize must be a positive integer: " +
@@ -78,80 +93,43 @@ public class EslFrameDecoder extends ReplayingDecoder<EslFrameDecoder.State> {
 
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-		State state = state();
-
 		log.trace("decode() : state [{}]", state);
 		switch (state) {
 			case READ_HEADER:
-				if (currentMessage == null) {
-					currentMessage = new EslMessage();
-				}
 				/*
-								*  read '\n' terminated lines until reach a single '\n'
-								*/
-				boolean reachedDoubleLF = false;
-				while (!reachedDoubleLF) {
-					// this will read or fail
-					String headerLine = readToLineFeedOrFail(buffer, maxHeaderSize);
-					log.debug("read header line [{}]", headerLine);
-					if (!headerLine.isEmpty()) {
-						// split the header line
-						String[] headerParts = HeaderParser.splitHeader(headerLine);
-						Name headerName = Name.fromLiteral(headerParts[0]);
-						if (headerName == null) {
-							if (treatUnknownHeadersAsBody) {
-								// cache this 'header' as a body line <-- useful for Outbound client mode
-								currentMessage.addBodyLine(headerLine);
-							} else {
-								throw new IllegalStateException("Unhandled ESL header [" + headerParts[0] + ']');
-							}
-						}
-						currentMessage.addHeader(headerName, headerParts[1]);
-					} else {
-						reachedDoubleLF = true;
-					}
-					// do not read in this line again
-					checkpoint();
+				 *  find the '\n' of the empty line that terminates the header block
+				 */
+				int headerEnd = headerBlockFinder.find(buffer);
+				if (headerEnd < 0) {
+					// wait for more bytes
+					return;
 				}
+				currentMessage = new EslMessage();
+				readHeaders(buffer, headerEnd);
 				// have read all headers - check for content-length
 				if (currentMessage.hasContentLength()) {
-					checkpoint(State.READ_BODY);
 					log.debug("have content-length, decoding body ..");
-					//  force the next section
-
-					break;
+					state = State.READ_BODY;
 				} else {
-					// end of message
-					checkpoint(State.READ_HEADER);
-					// send message upstream
-					EslMessage decodedMessage = currentMessage;
-					currentMessage = null;
-
-					out.add(decodedMessage);
-					break;
+					// end of message, send upstream
+					out.add(takeCurrentMessage());
 				}
+				break;
 
 			case READ_BODY:
 				/*
-								*   read the content-length specified
-								*/
+				 *   only consume once the content-length specified is available
+				 */
 				int contentLength = currentMessage.getContentLength();
-				ByteBuf bodyBytes = buffer.readBytes(contentLength);
-				log.debug("read [{}] body bytes", bodyBytes.writerIndex());
-				// most bodies are line based, so split on LF
-				while (bodyBytes.isReadable()) {
-					String bodyLine = readLine(bodyBytes, contentLength);
-					log.debug("read body line [{}]", bodyLine);
-					currentMessage.addBodyLine(bodyLine);
+				if (buffer.readableBytes() < contentLength) {
+					return;
 				}
-
-				// end of message
-				checkpoint(State.READ_HEADER);
-				// send message upstream
-				EslMessage decodedMessage = currentMessage;
-				currentMessage = null;
-
-				out.add(decodedMessage);
+				// keep a retained slice, the body is only split and decoded if somebody asks for it
+				log.debug("read [{}] body bytes", contentLength);
+				currentMessage.setRawBody(buffer.readSlice(contentLength).retain());
+				state = State.READ_HEADER;
+				// end of message, send upstream
+				out.add(takeCurrentMessage());
 				break;
 
 			default:
@@ -159,41 +137,144 @@ public class EslFrameDecoder extends ReplayingDecoder<EslFrameDecoder.State> {
 		}
 	}
 
-	private String readToLineFeedOrFail(ByteBuf buffer, int maxLineLegth) throws TooLongFrameException {
-		StringBuilder sb = new StringBuilder(64);
-		while (true) {
-			// this read might fail
-			byte nextByte = buffer.readByte();
-			if (nextByte == LF) {
-				return sb.toString();
+	private EslMessage takeCurrentMessage() {
+		EslMessage decodedMessage = currentMessage;
+		currentMessage = null;
+		return decodedMessage;
+	}
+
+	/**
+	 * Consume the header lines up to and including the '\n' at {@code headerEnd}.
+	 */
+	private void readHeaders(ByteBuf buffer, int headerEnd) {
+		boolean ascii = headerBlockFinder.wasAscii();
+		int lineStart = buffer.readerIndex();
+		while (lineStart < headerEnd) {
+			int lineEnd = buffer.indexOf(lineStart, headerEnd, LF);
+			// resolve the name straight from the bytes, only known headers have their value decoded
+			int nameStart = skipWhitespace(buffer, lineStart, lineEnd);
+			int nameEnd = nameStart;
+			while (nameEnd < lineEnd && buffer.getByte(nameEnd) != ':' && !isWhitespace(buffer.getByte(nameEnd))) {
+				nameEnd++;
+			}
+			Name headerName = Name.fromBytes(buffer, nameStart, nameEnd - nameStart);
+			if (headerName != null) {
+				currentMessage.addHeader(headerName, headerValue(buffer, nameEnd, lineEnd, ascii));
+			} else if (treatUnknownHeadersAsBody) {
+				// cache this 'header' as a body line <-- useful for Outbound client mode
+				String headerLine = decodeText(buffer, lineStart, lineEnd - lineStart, ascii);
+				log.trace("read unknown header line [{}]", headerLine);
+				currentMessage.addBodyLine(headerLine);
 			} else {
-				// Abort decoding if the decoded line is too large.
-				if (sb.length() >= maxLineLegth) {
-					throw new TooLongFrameException(
-						"ESL header line is longer than " + maxLineLegth + " bytes.");
-				}
-				sb.append((char) nextByte);
+				throw new IllegalStateException("Unhandled ESL header ["
+					+ decodeText(buffer, nameStart, nameEnd - nameStart, ascii) + ']');
 			}
+			lineStart = lineEnd + 1;
+		}
+		buffer.readerIndex(headerEnd + 1);
+	}
+
+	/**
+	 * The header value following the name, split as by {@link HeaderParser#splitHeader(String)}.
+	 */
+	private static String headerValue(ByteBuf buffer, int nameEnd, int lineEnd, boolean ascii) {
+		int colonEnd = buffer.indexOf(nameEnd, lineEnd, (byte) ':');
+		colonEnd = colonEnd < 0 ? lineEnd : colonEnd + 1;
+		int valueStart = skipWhitespace(buffer, colonEnd, lineEnd);
+		int valueEnd = lineEnd;
+		while (valueEnd > valueStart && isWhitespace(buffer.getByte(valueEnd - 1))) {
+			valueEnd--;
+		}
+		return decodeText(buffer, valueStart, valueEnd - valueStart, ascii);
+	}
+
+	/**
+	 * @return true if no byte in the region has the high bit set
+	 */
+	static boolean isAscii(ByteBuf buffer, int index, int length) {
+		return length == 0 || buffer.forEachByte(index, length, FIND_NON_ASCII) < 0;
+	}
+
+	/**
+	 * Decode a region of UTF-8 text in one bulk conversion.  When the region is known to be
+	 * ASCII the (faster) ISO-8859-1 conversion gives the same result.
+	 */
+	static String decodeText(ByteBuf buffer, int index, int length, boolean ascii) {
+		final Charset charset = ascii ? CharsetUtil.ISO_8859_1 : CharsetUtil.UTF_8;
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + index, length, charset);
+		}
+		final byte[] bytes = new byte[length];
+		buffer.getBytes(index, bytes);
+		return new String(bytes, charset);
+	}
+
+	private static int skipWhitespace(ByteBuf buffer, int index, int end) {
+		while (index < end && isWhitespace(buffer.getByte(index))) {
+			index++;
 		}
+		return index;
+	}
+
+	private static boolean isWhitespace(byte value) {
+		return Character.isWhitespace((char) (value & 0xff));
 	}
 
-	private String readLine(ByteBuf buffer, int maxLineLength) throws TooLongFrameException {
-		StringBuilder sb = new StringBuilder(64);
-		while (buffer.isReadable()) {
-			// this read should always succeed
-			byte nextByte = buffer.readByte();
-			if (nextByte == LF) {
-				return sb.toString();
+	/**
+	 * Scans forward for an empty line, remembering how far it got so that bytes are never
+	 * scanned twice while a header block trickles in.  Enforces the maximum header line length.
+	 */
+	private final class HeaderBlockFinder implements ByteBufProcessor {
+		// bytes after the reader index that have already been scanned
+		private int scanned;
+		// length of the header line currently being scanned
+		private int lineLength;
+		// whether a byte with the high bit set was seen in the current block
+		private boolean nonAscii;
+		private boolean lastBlockAscii;
+
+		int find(ByteBuf buffer) {
+			int start = buffer.readerIndex() + scanned;
+			int length = buffer.writerIndex() - start;
+			int index = length > 0 ? buffer.forEachByte(start, length, this) : -1;
+			if (index < 0) {
+				scanned += length;
+				return -1;
+			}
+			scanned = 0;
+			lineLength = 0;
+			lastBlockAscii = !nonAscii;
+			nonAscii = false;
+			return index;
+		}
+
+		/**
+		 * @return true if the header block last found by {@link #find(ByteBuf)} was pure ASCII
+		 */
+		boolean wasAscii() {
+			return lastBlockAscii;
+		}
+
+		@Override
+		public boolean process(byte value) throws Exception {
+			if (value == LF) {
+				if (lineLength == 0) {
+					// found the empty line
+					return false;
+				}
+				lineLength = 0;
 			} else {
 				// Abort decoding if the decoded line is too large.
-				if (sb.length() >= maxLineLength) {
+				if (lineLength >= maxHeaderSize) {
 					throw new TooLongFrameException(
-						"ESL message line is longer than " + maxLineLength + " bytes.");
+						"ESL header line is longer than " + maxHeaderSize + " bytes.");
+				}
+				lineLength++;
+				if (value < 0) {
+					nonAscii = true;
 				}
-				sb.append((char) nextByte);
 			}
+			return true;
 		}
-
-		return sb.toString();
 	}
 }
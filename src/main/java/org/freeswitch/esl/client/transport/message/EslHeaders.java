@@ -15,6 +15,8 @@
  */
 package org.freeswitch.esl.client.transport.message;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * Container class for enumeration of ESL message header names, and some commonly used
  * header string values.
@@ -26,10 +28,6 @@ public class EslHeaders {
 	 * Note this enum will need to be kept in synch with any new headers introduced on the server side.
 	 */
 	public enum Name {
-		/*
-				*  Minor optimization - put most often used headers at the top for fastest resolution
-				*  in static fromLiteral().
-				*/
 
 		/**
 		 * {@code "Content-Type"}
@@ -56,10 +54,35 @@ public class EslHeaders {
 		 */
 		Control("Control"),;
 
+		/*
+		 *  Lookup table indexed by literal length, then by the lower case first character.  Every
+		 *  resolution costs at most one case insensitive comparison, and most unknown names
+		 *  (eg the channel headers of an outbound connect reply) miss on length or first character.
+		 */
+		private static final Name[][] BY_LENGTH;
+
+		static {
+			int maxLength = 0;
+			for (Name name : values()) {
+				maxLength = Math.max(maxLength, name.literal.length());
+			}
+			BY_LENGTH = new Name[maxLength + 1][];
+			for (Name name : values()) {
+				final int length = name.literal.length();
+				final Name[] sameLength = BY_LENGTH[length] == null ? new Name[0] : BY_LENGTH[length];
+				final Name[] extended = new Name[sameLength.length + 1];
+				System.arraycopy(sameLength, 0, extended, 0, sameLength.length);
+				extended[sameLength.length] = name;
+				BY_LENGTH[length] = extended;
+			}
+		}
+
 		private final String literal;
+		private final char firstChar;
 
 		Name(String literal) {
 			this.literal = literal;
+			this.firstChar = Character.toLowerCase(literal.charAt(0));
 		}
 
 		public String literal() {
@@ -67,14 +90,58 @@ public class EslHeaders {
 		}
 
 		public static Name fromLiteral(String literal) {
-			for (Name name : values()) {
-				if (name.literal.equalsIgnoreCase(literal)) {
+			if (literal == null) {
+				return null;
+			}
+			final Name[] candidates = candidates(literal.length());
+			if (candidates == null) {
+				return null;
+			}
+			final char first = Character.toLowerCase(literal.charAt(0));
+			for (Name name : candidates) {
+				if (name.firstChar == first && name.literal.equalsIgnoreCase(literal)) {
 					return name;
 				}
 			}
+			return null;
+		}
 
+		/**
+		 * Resolve a header name straight from received bytes, without building a String.
+		 *
+		 * @param buffer holding the header name
+		 * @param index  of the first byte of the name
+		 * @param length of the name in bytes
+		 * @return the matching name (ignoring case), or null if the name is not known
+		 */
+		public static Name fromBytes(ByteBuf buffer, int index, int length) {
+			final Name[] candidates = candidates(length);
+			if (candidates == null) {
+				return null;
+			}
+			final char first = Character.toLowerCase((char) (buffer.getByte(index) & 0xff));
+			for (Name name : candidates) {
+				if (name.firstChar == first && name.literalEqualsIgnoreCase(buffer, index)) {
+					return name;
+				}
+			}
 			return null;
 		}
+
+		private static Name[] candidates(int length) {
+			return length > 0 && length < BY_LENGTH.length ? BY_LENGTH[length] : null;
+		}
+
+		private boolean literalEqualsIgnoreCase(ByteBuf buffer, int index) {
+			for (int i = 1; i < literal.length(); i++) {
+				final char expected = literal.charAt(i);
+				final char actual = (char) (buffer.getByte(index + i) & 0xff);
+				if (expected != actual && Character.toLowerCase(expected) != Character.toLowerCase(actual)) {
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 
 	/**
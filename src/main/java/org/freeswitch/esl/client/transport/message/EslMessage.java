@@ -15,6 +15,9 @@
  */
 package org.freeswitch.esl.client.transport.message;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.ReferenceCounted;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,17 +38,23 @@ import static com.google.common.base.Objects.toStringHelper;
  * Header lines are parsed and cached in a map keyed by the {@link EslHeaders.Name} enum.  A message
  * is always expected to have a "Content-Type" header
  * <p/>
- * Any Body lines are cached in a list.
+ * Any Body lines are cached in a list.  When the message was decoded with a Content-Length, the
+ * body is held as a retained slice of the receive buffer and is only split into lines and decoded
+ * the first time {@link #getBodyLines()} is called. The message is {@link ReferenceCounted} on
+ * behalf of that slice; once released, a body that was never read can no longer be decoded.
  *
  * @see EslHeaders.Name
  */
-public class EslMessage {
+public class EslMessage implements ReferenceCounted {
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
 
 	private final Map<Name, String> headers = new HashMap<>();
 	private final List<String> body = new ArrayList<>();
 
 	private Integer contentLength = null;
+	private ByteBuf rawBody = null;
+	private boolean bodyDecoded = false;
+	private int linesBeforeRawBody = 0;
 
 	/**
 	 * All the received message headers in a map keyed by {@link EslHeaders.Name}. The string mapped value
@@ -116,6 +125,9 @@ public class EslMessage {
 	 * @return list with a string for each line received, may be an empty list
 	 */
 	public List<String> getBodyLines() {
+		if (rawBody != null && !bodyDecoded) {
+			decodeRawBody();
+		}
 		return body;
 	}
 
@@ -137,6 +149,78 @@ public class EslMessage {
 		body.add(line);
 	}
 
+	/**
+	 * The undecoded Content-Length body of this message, for consumers that parse it directly.
+	 * The returned buffer is only valid until this message is released.
+	 *
+	 * @return a duplicate of the raw body buffer, or null if the body is only available as lines
+	 * @throws IllegalReferenceCountException if this message has been released
+	 */
+	public ByteBuf getRawBody() {
+		if (rawBody == null || linesBeforeRawBody > 0) {
+			return null;
+		}
+		if (rawBody.refCnt() == 0) {
+			throw new IllegalReferenceCountException(0);
+		}
+		return rawBody.duplicate();
+	}
+
+	/**
+	 * Used by the {@link EslFrameDecoder}. The supplied buffer must already be retained for this message.
+	 */
+	void setRawBody(ByteBuf rawBody) {
+		this.rawBody = rawBody;
+		this.linesBeforeRawBody = body.size();
+	}
+
+	private void decodeRawBody() {
+		// most bodies are line based, so split on LF
+		int lineStart = rawBody.readerIndex();
+		int bodyEnd = rawBody.writerIndex();
+		boolean ascii = EslFrameDecoder.isAscii(rawBody, lineStart, bodyEnd - lineStart);
+		while (lineStart < bodyEnd) {
+			int lineEnd = rawBody.indexOf(lineStart, bodyEnd, EslFrameDecoder.LF);
+			if (lineEnd < 0) {
+				lineEnd = bodyEnd;
+			}
+			body.add(EslFrameDecoder.decodeText(rawBody, lineStart, lineEnd - lineStart, ascii));
+			lineStart = lineEnd + 1;
+		}
+		bodyDecoded = true;
+	}
+
+	@Override
+	public int refCnt() {
+		return rawBody == null ? 1 : rawBody.refCnt();
+	}
+
+	@Override
+	public EslMessage retain() {
+		if (rawBody != null) {
+			rawBody.retain();
+		}
+		return this;
+	}
+
+	@Override
+	public EslMessage retain(int increment) {
+		if (rawBody != null) {
+			rawBody.retain(increment);
+		}
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		return rawBody != null && rawBody.release();
+	}
+
+	@Override
+	public boolean release(int decrement) {
+		return rawBody != null && rawBody.release(decrement);
+	}
+
 	/**
 	 * Did this message return Reply-Text: +OK
 	 *
@@ -151,7 +235,9 @@ public class EslMessage {
 		return toStringHelper(this)
 				.add("contentType", getContentType())
 				.add("headers", headers.size())
-				.add("body", body.size() + " lines")
+				.add("body", rawBody != null && !bodyDecoded
+						? rawBody.readableBytes() + " bytes"
+						: body.size() + " lines")
 				.toString();
 	}
 
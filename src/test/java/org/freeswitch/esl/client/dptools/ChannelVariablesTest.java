@@ -0,0 +1,70 @@
+package org.freeswitch.esl.client.dptools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class ChannelVariablesTest
+{
+    private EslMessage decode( String contentType, String body )
+    {
+        EmbeddedChannel embedder = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        embedder.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+            + "\nContent-Type: " + contentType + "\n\n" + body, StandardCharsets.UTF_8 ) );
+        return (EslMessage) embedder.readInbound();
+    }
+
+    private EslEvent event( String body )
+    {
+        return new EslEvent( decode( "text/event-plain", body ) );
+    }
+
+    @Test
+    public void dumpIsParsedAndKeptCurrentByEvents()
+    {
+        ChannelVariables variables = ChannelVariables.fromDump( "1234", decode( "api/response",
+            "Unique-ID: 1234\nCaller-Caller-ID-Number: 1000\nvariable_caller_name: Jos%C3%A9%20Smith\nvariable_lang: en\n" ) );
+        assertEquals( "José Smith", variables.get( "caller_name" ) );
+        assertNull( variables.get( "Caller-Caller-ID-Number" ) );
+
+        variables.update( event( "Event-Name: CHANNEL_EXECUTE_COMPLETE\nUnique-ID: 1234\nvariable_lang: fr\n\n" ) );
+        variables.update( event( "Event-Name: CHANNEL_EXECUTE_COMPLETE\nUnique-ID: 5678\nvariable_lang: de\n\n" ) );
+        assertEquals( "fr", variables.get( "lang" ) );
+
+        variables.update( event( "Event-Name: CHANNEL_HANGUP\nUnique-ID: 1234\n\n" ) );
+        assertFalse( variables.isValid() );
+        assertNull( variables.get( "lang" ) );
+    }
+
+    @Test
+    public void onlyLiteralValuesAreRecorded()
+    {
+        ChannelVariables variables = ChannelVariables.fromEvent( event( "Event-Name: CHANNEL_DATA\nUnique-ID: 1234\nvariable_lang: en\n\n" ) );
+        variables.put( "lang", "${default_language}" );
+        assertNull( variables.get( "lang" ) );
+        variables.put( "lang", "fr" );
+        assertEquals( "fr", variables.get( "lang" ) );
+        variables.put( "lang", "" );
+        assertNull( variables.get( "lang" ) );
+        variables.put( "lang", "de" );
+        variables.put( "lang", null );
+        assertNull( variables.get( "lang" ) );
+        variables.put( "domain", "$${domain}" );
+        assertNull( variables.get( "domain" ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void eventWithoutUniqueIdIsRejected()
+    {
+        ChannelVariables.fromEvent( event( "Event-Name: HEARTBEAT\nvariable_lang: en\n\n" ) );
+    }
+}
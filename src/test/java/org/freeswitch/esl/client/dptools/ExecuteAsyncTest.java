@@ -0,0 +1,35 @@
+package org.freeswitch.esl.client.dptools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.freeswitch.esl.client.internal.IModEslAsyncApi;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.junit.Test;
+
+public class ExecuteAsyncTest
+{
+    private final List<SendMsg> sent = new ArrayList<>();
+
+    private final IModEslAsyncApi api = (IModEslAsyncApi) Proxy.newProxyInstance(
+        IModEslAsyncApi.class.getClassLoader(), new Class<?>[] { IModEslAsyncApi.class },
+        ( proxy, method, args ) -> {
+            sent.add( (SendMsg) args[0] );
+            return new CompletableFuture<>();
+        } );
+
+    @Test
+    public void setWithNullValueUnsetsTheVariable()
+    {
+        ExecuteAsync execute = new ExecuteAsync( api, "chan-1" );
+        execute.set( "lang", null );
+        execute.set( "caller", "1000" );
+
+        assertEquals( "execute-app-arg: lang=", sent.get( 0 ).getMsgLines().get( 3 ) );
+        assertEquals( "execute-app-arg: caller=1000", sent.get( 1 ).getMsgLines().get( 3 ) );
+    }
+}
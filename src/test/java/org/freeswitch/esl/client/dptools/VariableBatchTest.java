@@ -0,0 +1,28 @@
+package org.freeswitch.esl.client.dptools;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class VariableBatchTest
+{
+    @Test
+    public void pairsAreJoinedWithADelimiterTheyDoNotContain()
+    {
+        VariableBatch batch = new VariableBatch();
+        batch.add( "caller", "José Smith" );
+        batch.add( "route", "a;b" );
+        assertEquals( "^^:caller=José Smith:route=a;b", batch.toArgument() );
+
+        batch.add( "sip_uri", "sip:1000@example.com" );
+        assertEquals( "^^|caller=José Smith|route=a;b|sip_uri=sip:1000@example.com", batch.toArgument() );
+    }
+
+    @Test
+    public void nullValueUnsetsTheVariable()
+    {
+        VariableBatch batch = new VariableBatch();
+        batch.add( "lang", null );
+        assertEquals( "^^:lang=", batch.toArgument() );
+    }
+}
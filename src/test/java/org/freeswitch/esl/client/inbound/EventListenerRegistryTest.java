@@ -0,0 +1,74 @@
+package org.freeswitch.esl.client.inbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class EventListenerRegistryTest
+{
+    private final IEslEventListener all = ( ctx, event ) -> { };
+    private final IEslEventListener answers = ( ctx, event ) -> { };
+    private final IEslEventListener custom = ( ctx, event ) -> { };
+    private final IEslEventListener registrations = ( ctx, event ) -> { };
+
+    private EslEvent event( String... headerLines )
+    {
+        StringBuilder body = new StringBuilder();
+        for ( String line : headerLines )
+        {
+            body.append( line ).append( '\n' );
+        }
+        byte[] bodyBytes = body.toString().getBytes();
+
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeBytes( ( "Content-Length: " + bodyBytes.length + "\nContent-Type: text/event-plain\n\n" ).getBytes() );
+        buffer.writeBytes( bodyBytes );
+
+        EmbeddedChannel embedder = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        embedder.writeInbound( buffer );
+        embedder.finish();
+        EslMessage message = (EslMessage) embedder.readInbound();
+        EslEvent event = new EslEvent( message );
+        message.release();
+        return event;
+    }
+
+    @Test
+    public void routesByEventNameAndSubclass()
+    {
+        EventListenerRegistry registry = new EventListenerRegistry();
+        registry.add( all );
+        registry.addForEventName( "CHANNEL_ANSWER", answers );
+        registry.addForEventName( "CUSTOM", custom );
+        registry.addForSubclass( "sofia::register", registrations );
+
+        assertEquals( Arrays.asList( all, answers ),
+            registry.listenersFor( event( "Event-Name: CHANNEL_ANSWER" ) ) );
+        assertEquals( Arrays.asList( all ),
+            registry.listenersFor( event( "Event-Name: HEARTBEAT" ) ) );
+        assertEquals( Arrays.asList( all, custom, registrations ),
+            registry.listenersFor( event( "Event-Name: CUSTOM", "Event-Subclass: sofia%3A%3Aregister" ) ) );
+        assertEquals( Arrays.asList( all, custom ),
+            registry.listenersFor( event( "Event-Name: CUSTOM", "Event-Subclass: conference%3A%3Amaintenance" ) ) );
+    }
+
+    @Test
+    public void removedListenerIsNoLongerRouted()
+    {
+        EventListenerRegistry registry = new EventListenerRegistry();
+        registry.addForEventName( "CHANNEL_ANSWER", answers );
+        registry.add( answers );
+        registry.remove( answers );
+
+        assertTrue( registry.listenersFor( event( "Event-Name: CHANNEL_ANSWER" ) ).isEmpty() );
+    }
+}
@@ -0,0 +1,336 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslHeaders;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractEslClientHandlerTest
+{
+    private TestHandler handler;
+    private EmbeddedChannel embedder;
+
+    @Before
+    public void setupTest()
+    {
+        handler = new TestHandler();
+        embedder = new EmbeddedChannel( new EslFrameDecoder( 8192 ), handler );
+    }
+
+    private void reply( String text )
+    {
+        final String frame = "Content-Type: api/response\nContent-Length: " + text.length() + "\n\n" + text;
+        embedder.writeInbound( Unpooled.copiedBuffer( frame, StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void commandsAreWrittenByTheEventLoopInSubmissionOrder()
+    {
+        CompletableFuture<EslMessage> first = handler.sendCommand( embedder, new EslCommand( "api", "first" ) );
+        CompletableFuture<EslMessage> second = handler.sendCommand( embedder, new EslCommand( "api", "second" ) );
+        assertEquals( 2, handler.getQueuedCommandCount() );
+        assertNull( embedder.readOutbound() );
+
+        embedder.runPendingTasks();
+        assertEquals( 0, handler.getQueuedCommandCount() );
+        assertEquals( "api first", embedder.readOutbound().toString() );
+        assertEquals( "api second", embedder.readOutbound().toString() );
+
+        reply( "one" );
+        assertTrue( first.isDone() );
+        assertFalse( second.isDone() );
+        reply( "two" );
+        assertEquals( "one", first.join().getBodyLines().get( 0 ) );
+        assertEquals( "two", second.join().getBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void asyncApiPipelinesCommandsWithoutBlocking()
+    {
+        Context context = new Context( embedder, handler );
+        List<CompletableFuture<EslMessage>> responses = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            responses.add( context.sendApiCommandAsync( "echo", String.valueOf( i ) ) );
+        }
+        embedder.runPendingTasks();
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( "api echo " + i, embedder.readOutbound().toString() );
+        }
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            reply( String.valueOf( i ) );
+        }
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( String.valueOf( i ), responses.get( i ).join().getBodyLines().get( 0 ) );
+        }
+    }
+
+    @Test
+    public void batchedMessagesAreWrittenTogether()
+    {
+        final int[] flushes = { 0 };
+        embedder.pipeline().addFirst( new ChannelOutboundHandlerAdapter()
+        {
+            @Override
+            public void flush( ChannelHandlerContext ctx ) throws Exception
+            {
+                flushes[0]++;
+                super.flush( ctx );
+            }
+        } );
+        CompletableFuture<EslMessage> before = handler.sendCommand( embedder, new EslCommand( "api", "before" ) );
+        List<CompletableFuture<EslMessage>> steps = handler.sendMessages( embedder, Arrays.asList(
+            new SendMsg().addCallCommand( "execute" ).addExecuteAppName( "answer" ),
+            new SendMsg().addCallCommand( "execute" ).addExecuteAppName( "playback" ) ) );
+        assertEquals( 3, handler.getQueuedCommandCount() );
+        embedder.runPendingTasks();
+
+        assertEquals( 1, flushes[0] );
+        assertEquals( "api before", embedder.readOutbound().toString() );
+        assertTrue( embedder.readOutbound() instanceof SendMsg );
+        assertTrue( embedder.readOutbound() instanceof SendMsg );
+        reply( "ok" );
+        for ( int i = 0; i < 2; i++ )
+        {
+            embedder.writeInbound( Unpooled.copiedBuffer( "Content-Type: command/reply\nReply-Text: +OK\n\n", StandardCharsets.UTF_8 ) );
+        }
+        assertTrue( before.isDone() );
+        assertEquals( "+OK", steps.get( 1 ).join().getHeaderValue( EslHeaders.Name.REPLY_TEXT ) );
+    }
+
+    @Test
+    public void timedOutCommandStillConsumesItsResponse() throws Exception
+    {
+        CompletableFuture<EslMessage> slow = handler.sendCommand( embedder, new EslCommand( "api", "slow" ), 10, TimeUnit.MILLISECONDS );
+        CompletableFuture<EslMessage> next = handler.sendCommand( embedder, new EslCommand( "api", "next" ) );
+        embedder.runPendingTasks();
+
+        try
+        {
+            slow.join();
+        }
+        catch ( CompletionException e )
+        {
+            assertTrue( e.getCause() instanceof TimeoutException );
+        }
+        assertTrue( slow.isCompletedExceptionally() );
+
+        reply( "late" );
+        assertFalse( next.isDone() );
+        reply( "next" );
+        assertEquals( "next", next.join().getBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void pendingCommandsFailWhenTheChannelCloses()
+    {
+        CompletableFuture<EslMessage> written = handler.sendCommand( embedder, new EslCommand( "api", "written" ) );
+        embedder.runPendingTasks();
+        CompletableFuture<EslMessage> queued = handler.sendCommand( embedder, new EslCommand( "api", "queued" ) );
+
+        embedder.close();
+        embedder.runPendingTasks();
+
+        assertClosed( written );
+        assertClosed( queued );
+    }
+
+    @Test
+    public void backgroundJobIsRegisteredBeforeTheCommandIsSent()
+    {
+        CompletableFuture<EslEvent> job = handler.sendBackgroundApiCommand( embedder, new EslCommand( "bgapi", "status" ) );
+        embedder.runPendingTasks();
+        assertEquals( "event BACKGROUND_JOB", embedder.readOutbound().toString() );
+        assertNull( embedder.readOutbound() );
+        embedder.writeInbound( Unpooled.copiedBuffer( "Content-Type: command/reply\nReply-Text: +OK event listener enabled plain\n\n",
+            StandardCharsets.UTF_8 ) );
+        embedder.runPendingTasks();
+        EslCommand sent = (EslCommand) embedder.readOutbound();
+        assertEquals( "Job-UUID", sent.getHeaders().get( 0 ).toString() );
+        String jobId = sent.getHeaders().get( 1 ).toString();
+        assertEquals( 36, jobId.length() );
+
+        // the event overtakes the command reply
+        String event = "Job-UUID: " + jobId + "\nEvent-Name: BACKGROUND_JOB\n\n";
+        embedder.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + event.length()
+            + "\nContent-Type: text/event-plain\n\n" + event, StandardCharsets.UTF_8 ) );
+        assertEquals( "BACKGROUND_JOB", job.join().getEventName() );
+    }
+
+    @Test
+    public void backgroundJobsWaitForTheSingleSubscription()
+    {
+        EslCommand command = new EslCommand( "bgapi", "status" );
+        handler.sendBackgroundApiCommand( embedder, command );
+        embedder.runPendingTasks();
+        handler.sendBackgroundApiCommand( embedder, command );
+        embedder.runPendingTasks();
+        assertEquals( "event BACKGROUND_JOB", embedder.readOutbound().toString() );
+        assertNull( embedder.readOutbound() );
+
+        embedder.writeInbound( Unpooled.copiedBuffer( "Content-Type: command/reply\nReply-Text: +OK\n\n", StandardCharsets.UTF_8 ) );
+        embedder.runPendingTasks();
+        assertEquals( 1, ( (EslCommand) embedder.readOutbound() ).getHeaders().size() / 2 );
+        assertEquals( 1, ( (EslCommand) embedder.readOutbound() ).getHeaders().size() / 2 );
+        assertNull( embedder.readOutbound() );
+        assertTrue( command.getHeaders().isEmpty() );
+
+        handler.sendBackgroundApiCommand( embedder, command );
+        embedder.runPendingTasks();
+        assertEquals( "bgapi status", embedder.readOutbound().toString() );
+    }
+
+    @Test
+    public void rejectedBackgroundJobFails()
+    {
+        handler.setBackgroundJobAutoSubscribe( false );
+        CompletableFuture<EslEvent> job = handler.sendBackgroundApiCommand( embedder, new EslCommand( "bgapi", "nosuchcommand" ) );
+        embedder.runPendingTasks();
+        embedder.writeInbound( Unpooled.copiedBuffer( "Content-Type: command/reply\nReply-Text: -ERR nosuchcommand Command not found!\n\n",
+            StandardCharsets.UTF_8 ) );
+        assertTrue( job.isCompletedExceptionally() );
+    }
+
+    @Test
+    public void backgroundJobsExpireAndAreAdmissionControlled() throws Exception
+    {
+        handler.setBackgroundJobLimits( 1, 10, TimeUnit.MILLISECONDS );
+        CompletableFuture<EslEvent> first = handler.sendBackgroundApiCommand( embedder, new EslCommand( "bgapi", "status" ) );
+        CompletableFuture<EslEvent> second = handler.sendBackgroundApiCommand( embedder, new EslCommand( "bgapi", "status" ) );
+        assertTrue( second.isCompletedExceptionally() );
+        assertEquals( 1, handler.getBackgroundJobs().getRejectedCount() );
+
+        try
+        {
+            first.get( 1, TimeUnit.SECONDS );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof TimeoutException );
+        }
+        assertEquals( 1, handler.getBackgroundJobs().getExpiredCount() );
+        assertEquals( 0, handler.getBackgroundJobs().getOutstandingCount() );
+    }
+
+    @Test
+    public void applicationCompletesFromItsExecuteCompleteEvent()
+    {
+        SendMsg msg = new SendMsg().addCallCommand( "execute" ).addExecuteAppName( "read" );
+        CompletableFuture<EslEvent> execution = handler.executeApplication( embedder, msg, "app-1" );
+        embedder.runPendingTasks();
+        SendMsg sent = (SendMsg) embedder.readOutbound();
+        assertTrue( sent.getMsgLines().contains( "Event-UUID: app-1" ) );
+        embedder.writeInbound( Unpooled.copiedBuffer( "Content-Type: command/reply\nReply-Text: +OK\n\n", StandardCharsets.UTF_8 ) );
+        assertFalse( execution.isDone() );
+
+        String other = "Event-Name: CHANNEL_EXECUTE_COMPLETE\nApplication-UUID: app-2\n\n";
+        String event = "Event-Name: CHANNEL_EXECUTE_COMPLETE\nApplication-UUID: app-1\nvariable_digits: 42\n\n";
+        for ( String body : new String[] { other, event } )
+        {
+            embedder.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                + "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8 ) );
+        }
+        assertEquals( "42", execution.join().getEventHeaders().get( "variable_digits" ) );
+        assertEquals( 0, handler.getApplicationExecutions().getOutstandingCount() );
+    }
+
+    @Test
+    public void oneMessageCanBeExecutedTwice()
+    {
+        SendMsg msg = new SendMsg().addCallCommand( "execute" ).addExecuteAppName( "playback" );
+        handler.executeApplication( embedder, msg, "app-1" );
+        handler.executeApplication( embedder, msg, "app-2" );
+        embedder.runPendingTasks();
+
+        assertEquals( 3, msg.getMsgLines().size() );
+        SendMsg first = (SendMsg) embedder.readOutbound();
+        SendMsg second = (SendMsg) embedder.readOutbound();
+        assertEquals( "Event-UUID: app-1", first.getMsgLines().get( 3 ) );
+        assertEquals( 4, first.getMsgLines().size() );
+        assertEquals( "Event-UUID: app-2", second.getMsgLines().get( 3 ) );
+        assertEquals( 4, second.getMsgLines().size() );
+    }
+
+    @Test
+    public void applicationsFailWhenTheirChannelHangsUp()
+    {
+        CompletableFuture<EslEvent> first = handler.executeApplication( embedder,
+            new SendMsg( "chan-1" ).addCallCommand( "execute" ).addExecuteAppName( "playback" ), "app-1" );
+        CompletableFuture<EslEvent> queued = handler.executeApplication( embedder,
+            new SendMsg( "chan-1" ).addCallCommand( "execute" ).addExecuteAppName( "playback" ), "app-2" );
+        CompletableFuture<EslEvent> other = handler.executeApplication( embedder,
+            new SendMsg( "chan-2" ).addCallCommand( "execute" ).addExecuteAppName( "playback" ), "app-3" );
+        embedder.runPendingTasks();
+
+        String completed = "Event-Name: CHANNEL_EXECUTE_COMPLETE\nUnique-ID: chan-1\nApplication-UUID: app-1\n\n";
+        String hangup = "Event-Name: CHANNEL_HANGUP_COMPLETE\nUnique-ID: chan-1\n\n";
+        for ( String body : new String[] { completed, hangup } )
+        {
+            embedder.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                + "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8 ) );
+        }
+        assertEquals( "app-1", first.join().getEventHeaders().get( "Application-UUID" ) );
+        assertTrue( queued.isCompletedExceptionally() );
+        assertFalse( other.isDone() );
+        assertEquals( 1, handler.getApplicationExecutions().getOutstandingCount() );
+    }
+
+    private static void assertClosed( CompletableFuture<EslMessage> future )
+    {
+        try
+        {
+            future.join();
+        }
+        catch ( CompletionException e )
+        {
+            assertTrue( e.getCause() instanceof ClosedChannelException );
+        }
+        assertTrue( future.isCompletedExceptionally() );
+    }
+
+    private static class TestHandler extends AbstractEslClientHandler
+    {
+        @Override
+        protected void handleEslEvent( ChannelHandlerContext ctx, EslEvent event )
+        {
+        }
+
+        @Override
+        protected void handleAuthRequest( ChannelHandlerContext ctx )
+        {
+        }
+
+        @Override
+        protected void handleDisconnectionNotice()
+        {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.junit.Test;
+
+public class BackgroundJobRegistryTest
+{
+    /**
+     * Fires every timeout as soon as it is created, before the job is published.
+     */
+    private static class ExpiredTimer implements Timer
+    {
+        private int cancelled;
+
+        @Override
+        public Timeout newTimeout( TimerTask task, long delay, TimeUnit unit )
+        {
+            final Timeout timeout = new Timeout()
+            {
+                @Override
+                public Timer timer()
+                {
+                    return ExpiredTimer.this;
+                }
+
+                @Override
+                public TimerTask task()
+                {
+                    return task;
+                }
+
+                @Override
+                public boolean isExpired()
+                {
+                    return true;
+                }
+
+                @Override
+                public boolean isCancelled()
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean cancel()
+                {
+                    cancelled++;
+                    return false;
+                }
+            };
+            try
+            {
+                task.run( timeout );
+            }
+            catch ( Exception e )
+            {
+                throw new AssertionError( e );
+            }
+            return timeout;
+        }
+
+        @Override
+        public Set<Timeout> stop()
+        {
+            return Collections.emptySet();
+        }
+    }
+
+    @Test
+    public void jobExpiredBeforeItWasPublishedStillFails()
+    {
+        BackgroundJobRegistry registry = new BackgroundJobRegistry( new ExpiredTimer(), "BACKGROUND_JOB", 0, TimeUnit.SECONDS );
+        CompletableFuture<EslEvent> job = registry.register( "job-1", "chan-1", 1 );
+        try
+        {
+            job.join();
+        }
+        catch ( CompletionException e )
+        {
+            assertTrue( e.getCause() instanceof TimeoutException );
+        }
+        assertTrue( job.isCompletedExceptionally() );
+        assertEquals( 0, registry.getOutstandingCount() );
+        assertEquals( 1, registry.getExpiredCount() );
+        assertEquals( 0, registry.failChannel( "chan-1", new IllegalStateException() ) );
+    }
+
+    @Test
+    public void duplicateJobCancelsItsTimeout()
+    {
+        ExpiredTimer timer = new ExpiredTimer();
+        BackgroundJobRegistry registry = new BackgroundJobRegistry( timer, "BACKGROUND_JOB", 0, TimeUnit.SECONDS );
+        CompletableFuture<EslEvent> first = registry.register( "job-1", "chan-1", 0 );
+        try
+        {
+            registry.register( "job-1", "chan-1", 1 );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertEquals( 1, timer.cancelled );
+            assertEquals( 1, registry.getOutstandingCount() );
+            assertFalse( first.isDone() );
+            assertEquals( 1, registry.failChannel( "chan-1", new IllegalStateException() ) );
+            assertTrue( first.isCompletedExceptionally() );
+            return;
+        }
+        throw new AssertionError( "expected IllegalArgumentException" );
+    }
+}
@@ -0,0 +1,215 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandSubmitterTest
+{
+    private TestHandler handler;
+    private EmbeddedChannel embedder;
+    private int flushes;
+
+    @Before
+    public void setupTest()
+    {
+        handler = new TestHandler();
+        embedder = new EmbeddedChannel( new EslFrameDecoder( 8192 ), handler );
+        embedder.pipeline().addFirst( new ChannelOutboundHandlerAdapter()
+        {
+            @Override
+            public void flush( ChannelHandlerContext ctx ) throws Exception
+            {
+                flushes++;
+                super.flush( ctx );
+            }
+        } );
+    }
+
+    private List<String> readWritten()
+    {
+        List<String> written = new ArrayList<>();
+        Object command;
+        while ( ( command = embedder.readOutbound() ) != null )
+        {
+            written.add( command.toString() );
+        }
+        return written;
+    }
+
+    private void reply( String text )
+    {
+        final String frame = "Content-Type: api/response\nContent-Length: " + text.length() + "\n\n" + text;
+        embedder.writeInbound( Unpooled.copiedBuffer( frame, StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void concurrentSubmittersGetTheirOwnReplies() throws Exception
+    {
+        handler.setWriteCoalescing( 16, 0, TimeUnit.MILLISECONDS );
+        final int threads = 8;
+        final int perThread = 500;
+        final List<List<CompletableFuture<EslMessage>>> futures = new ArrayList<>();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List<Thread> submitters = new ArrayList<>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            final List<CompletableFuture<EslMessage>> own = new ArrayList<>();
+            futures.add( own );
+            final int thread = t;
+            // the event loop is only run once every submitter is done, so it never runs concurrently
+            submitters.add( new Thread( () -> {
+                try
+                {
+                    start.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    return;
+                }
+                for ( int i = 0; i < perThread; i++ )
+                {
+                    own.add( handler.sendCommand( embedder, new EslCommand( "api", thread + "-" + i ) ) );
+                }
+            } ) );
+        }
+        for ( Thread submitter : submitters )
+        {
+            submitter.start();
+        }
+        start.countDown();
+        for ( Thread submitter : submitters )
+        {
+            submitter.join();
+        }
+        assertEquals( threads * perThread, handler.getQueuedCommandCount() );
+
+        embedder.runPendingTasks();
+        List<String> written = readWritten();
+        assertEquals( threads * perThread, written.size() );
+        assertEquals( 0, handler.getQueuedCommandCount() );
+        // at most one flush per 16 writes, plus the end of each drain
+        assertTrue( "flushes " + flushes, flushes <= threads * perThread / 16 + written.size() / 256 + 1 );
+
+        for ( String command : written )
+        {
+            reply( command.substring( "api ".length() ) );
+        }
+        for ( int t = 0; t < threads; t++ )
+        {
+            for ( int i = 0; i < perThread; i++ )
+            {
+                assertEquals( t + "-" + i, futures.get( t ).get( i ).join().getBodyLines().get( 0 ) );
+            }
+        }
+    }
+
+    @Test
+    public void drainYieldsAfterMaxWritesWithoutSplittingABatch()
+    {
+        for ( int i = 0; i < 600; i++ )
+        {
+            handler.sendCommand( embedder, new EslCommand( "api", String.valueOf( i ) ) );
+        }
+        embedder.runPendingTasks();
+        // 256 + 256 + 88, one flush per drain
+        assertEquals( 3, flushes );
+        assertEquals( 600, readWritten().size() );
+
+        flushes = 0;
+        Queue<CompletableFuture<EslMessage>> pending = new ConcurrentLinkedQueue<>();
+        CommandSubmitter submitter = new CommandSubmitter( pending );
+        for ( int i = 0; i < 250; i++ )
+        {
+            submitter.submit( embedder, new EslCommand( "api", "single" ), new CompletableFuture<>() );
+        }
+        List<EslCommand> batch = new ArrayList<>();
+        List<CompletableFuture<EslMessage>> batchFutures = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            batch.add( new EslCommand( "api", "batched" ) );
+            batchFutures.add( new CompletableFuture<>() );
+        }
+        submitter.submitAll( embedder, batch, batchFutures );
+        embedder.runPendingTasks();
+
+        // the batch straddling the limit is written whole by the drain that reached it
+        assertEquals( 1, flushes );
+        List<String> written = readWritten();
+        assertEquals( 260, written.size() );
+        assertEquals( "api batched", written.get( 259 ) );
+        assertEquals( 260, pending.size() );
+        assertEquals( 0, submitter.depth() );
+    }
+
+    @Test
+    public void maxDelayBoundsTheWaitForAFlush() throws Exception
+    {
+        handler.setWriteCoalescing( 100, 20, TimeUnit.MILLISECONDS );
+        CompletableFuture<EslMessage> first = handler.sendCommand( embedder, new EslCommand( "api", "first" ) );
+        handler.sendCommand( embedder, new EslCommand( "api", "second" ) );
+        embedder.runPendingTasks();
+        assertEquals( 0, flushes );
+
+        Thread.sleep( 40 );
+        embedder.runScheduledPendingTasks();
+        assertEquals( 1, flushes );
+        assertEquals( 2, readWritten().size() );
+        assertNull( embedder.readOutbound() );
+
+        reply( "first" );
+        assertEquals( "first", first.join().getBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void maxBatchForcesAFlush()
+    {
+        handler.setWriteCoalescing( 2, 0, TimeUnit.MILLISECONDS );
+        for ( int i = 0; i < 5; i++ )
+        {
+            handler.sendCommand( embedder, new EslCommand( "api", String.valueOf( i ) ) );
+        }
+        embedder.runPendingTasks();
+        // after the 2nd and 4th writes, then the 5th at the end of the tick
+        assertEquals( 3, flushes );
+        assertEquals( 5, readWritten().size() );
+    }
+
+    private static class TestHandler extends AbstractEslClientHandler
+    {
+        @Override
+        protected void handleEslEvent( ChannelHandlerContext ctx, EslEvent event )
+        {
+        }
+
+        @Override
+        protected void handleAuthRequest( ChannelHandlerContext ctx )
+        {
+        }
+
+        @Override
+        protected void handleDisconnectionNotice()
+        {
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.internal.EventDispatchQueue.OverflowPolicy;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class EventDispatchQueueTest
+{
+    private final EmbeddedChannel channel = new EmbeddedChannel( new ChannelInboundHandlerAdapter() );
+    private final List<Runnable> held = new ArrayList<>();
+    private final Executor holding = held::add;
+    private final List<Integer> handled = new ArrayList<>();
+
+    private void dispatch( EventDispatchQueue queue, int event )
+    {
+        queue.dispatch( channel, holding, () -> handled.add( event ) );
+    }
+
+    private void runHeld()
+    {
+        for ( Runnable task : held )
+        {
+            task.run();
+        }
+        held.clear();
+    }
+
+    @Test
+    public void blockSuspendsReadingUntilLowWatermark()
+    {
+        EventDispatchQueue queue = new EventDispatchQueue( 3, 1, OverflowPolicy.BLOCK );
+        dispatch( queue, 1 );
+        dispatch( queue, 2 );
+        assertTrue( channel.config().isAutoRead() );
+        dispatch( queue, 3 );
+        assertFalse( channel.config().isAutoRead() );
+        assertEquals( 3, queue.getDepth() );
+        assertEquals( 1, queue.getSuspendedChannelCount() );
+
+        held.remove( 0 ).run();
+        assertFalse( channel.config().isAutoRead() );
+        held.remove( 0 ).run();
+        assertTrue( channel.config().isAutoRead() );
+        assertEquals( 1, queue.getDepth() );
+        assertEquals( 3, queue.getPeakDepth() );
+    }
+
+    @Test
+    public void blockKeepsReadingWhileAListenerAwaitsAReply()
+    {
+        final EventDispatchQueue queue = new EventDispatchQueue( 2, 0, OverflowPolicy.BLOCK );
+        final List<CompletableFuture<EslMessage>> replies = new ArrayList<>();
+        final AbstractEslClientHandler handler = new AbstractEslClientHandler()
+        {
+            @Override
+            protected void handleEslEvent( ChannelHandlerContext ctx, EslEvent event )
+            {
+                // the listener sends a command, as a blocking listener would before waiting for it
+                queue.dispatch( ctx.channel(), holding,
+                    () -> replies.add( sendCommand( ctx.channel(), new EslCommand( "api", "status" ) ) ) );
+            }
+
+            @Override
+            protected void handleAuthRequest( ChannelHandlerContext ctx )
+            {
+            }
+
+            @Override
+            protected void handleDisconnectionNotice()
+            {
+            }
+        };
+        final EmbeddedChannel session = new EmbeddedChannel( new EslFrameDecoder( 8192 ), handler );
+        final String body = "Event-Name: HEARTBEAT\n\n";
+        final String event = "Content-Length: " + body.length() + "\nContent-Type: text/event-plain\n\n" + body;
+
+        session.writeInbound( Unpooled.copiedBuffer( event + event, StandardCharsets.UTF_8 ) );
+        assertFalse( session.config().isAutoRead() );
+
+        held.remove( 0 ).run();
+        assertEquals( 1, queue.getDepth() );
+        assertTrue( session.config().isAutoRead() );
+
+        // the reply follows the events, which fill the queue without suspending the reads
+        session.runPendingTasks();
+        session.writeInbound( Unpooled.copiedBuffer( event, StandardCharsets.UTF_8 ) );
+        assertTrue( session.config().isAutoRead() );
+        assertEquals( 2, queue.getDepth() );
+
+        session.writeInbound( Unpooled.copiedBuffer( "Content-Type: api/response\nContent-Length: 3\n\n+OK", StandardCharsets.UTF_8 ) );
+        assertTrue( replies.get( 0 ).isDone() );
+        session.writeInbound( Unpooled.copiedBuffer( event, StandardCharsets.UTF_8 ) );
+        assertFalse( session.config().isAutoRead() );
+        assertEquals( 1, queue.getParkedCount() );
+    }
+
+    @Test
+    public void blockBoundsTheEventsOfAChannelThatAlwaysAwaitsAReply()
+    {
+        final int capacity = 4;
+        final int eventsPerRead = 10;
+        final EventDispatchQueue queue = new EventDispatchQueue( capacity, 1, OverflowPolicy.BLOCK );
+        final AbstractEslClientHandler handler = new AbstractEslClientHandler()
+        {
+            @Override
+            protected void handleEslEvent( ChannelHandlerContext ctx, EslEvent event )
+            {
+                final int sequence = Integer.parseInt( event.getEventHeaders().get( "Event-Sequence" ) );
+                queue.dispatch( ctx.channel(), holding, () -> handled.add( sequence ) );
+            }
+
+            @Override
+            protected void handleAuthRequest( ChannelHandlerContext ctx )
+            {
+            }
+
+            @Override
+            protected void handleDisconnectionNotice()
+            {
+            }
+        };
+        final EmbeddedChannel session = new EmbeddedChannel( new EslFrameDecoder( 8192 ), handler );
+        final List<CompletableFuture<EslMessage>> replies = new ArrayList<>();
+        int sent = 0;
+        int answered = 0;
+        boolean suspendedWhileAwaitingReply = false;
+
+        for ( int round = 0; round < 1000; round++ )
+        {
+            // the client pipelines commands, so one is always in flight
+            replies.add( handler.sendCommand( session, new EslCommand( "api", "status" ) ) );
+            session.runPendingTasks();
+            if ( session.config().isAutoRead() )
+            {
+                // FreeSWITCH writes only while the socket is read, the reply behind the events
+                final StringBuilder frames = new StringBuilder();
+                for ( int i = 0; i < eventsPerRead; i++ )
+                {
+                    final String body = "Event-Name: HEARTBEAT\nEvent-Sequence: " + sent++ + "\n\n";
+                    frames.append( "Content-Length: " ).append( body.length() )
+                        .append( "\nContent-Type: text/event-plain\n\n" ).append( body );
+                }
+                frames.append( "Content-Type: api/response\nContent-Length: 3\n\n+OK" );
+                session.writeInbound( Unpooled.copiedBuffer( frames.toString(), StandardCharsets.UTF_8 ) );
+                // handled inline while the events are parked
+                assertTrue( replies.get( answered++ ).isDone() );
+            }
+            else
+            {
+                suspendedWhileAwaitingReply |= handler.isAwaitingReply();
+            }
+            assertTrue( "events held " + ( queue.getDepth() + queue.getParkedCount() ),
+                queue.getDepth() + queue.getParkedCount() <= 2 * capacity + eventsPerRead );
+
+            // a slow listener returns now and then
+            if ( round % 3 == 0 && !held.isEmpty() )
+            {
+                held.remove( 0 ).run();
+            }
+        }
+        assertTrue( suspendedWhileAwaitingReply );
+
+        while ( !held.isEmpty() )
+        {
+            held.remove( 0 ).run();
+        }
+        assertEquals( 0, queue.getParkedCount() );
+        assertEquals( 0, queue.getDepth() );
+        assertTrue( session.config().isAutoRead() );
+        assertEquals( sent, handled.size() );
+        for ( int i = 0; i < sent; i++ )
+        {
+            assertEquals( Integer.valueOf( i ), handled.get( i ) );
+        }
+    }
+
+    @Test
+    public void dropNewestDiscardsIncomingEvents()
+    {
+        EventDispatchQueue queue = new EventDispatchQueue( 2, 0, OverflowPolicy.DROP_NEWEST );
+        for ( int event = 1; event <= 4; event++ )
+        {
+            dispatch( queue, event );
+        }
+        runHeld();
+        assertEquals( 2, handled.size() );
+        assertEquals( Integer.valueOf( 1 ), handled.get( 0 ) );
+        assertEquals( Integer.valueOf( 2 ), handled.get( 1 ) );
+        assertEquals( 2, queue.getDroppedCount() );
+        assertEquals( 0, queue.getDepth() );
+    }
+
+    @Test
+    public void dropOldestKeepsTheLatestEvents()
+    {
+        EventDispatchQueue queue = new EventDispatchQueue( 2, 0, OverflowPolicy.DROP_OLDEST );
+        for ( int event = 1; event <= 4; event++ )
+        {
+            dispatch( queue, event );
+        }
+        runHeld();
+        assertEquals( 2, handled.size() );
+        assertEquals( Integer.valueOf( 3 ), handled.get( 0 ) );
+        assertEquals( Integer.valueOf( 4 ), handled.get( 1 ) );
+        assertEquals( 2, queue.getDroppedCount() );
+        assertEquals( 0, queue.getDepth() );
+    }
+
+    @Test
+    public void unboundedHandsTheTaskStraightToItsTarget()
+    {
+        EventDispatchQueue queue = EventDispatchQueue.unbounded();
+        Runnable task = () -> handled.add( 1 );
+        queue.dispatch( channel, holding, task );
+        assertSame( task, held.get( 0 ) );
+        assertEquals( 0, queue.getDepth() );
+    }
+
+    @Test
+    public void dropOldestSkipsEventsAlreadyStarted()
+    {
+        EventDispatchQueue queue = new EventDispatchQueue( 2, 0, OverflowPolicy.DROP_OLDEST );
+        dispatch( queue, 1 );
+        dispatch( queue, 2 );
+        // events of another lane may start before older ones
+        held.remove( 1 ).run();
+        dispatch( queue, 3 );
+        dispatch( queue, 4 );
+        runHeld();
+        assertEquals( 3, handled.size() );
+        assertEquals( Integer.valueOf( 2 ), handled.get( 0 ) );
+        assertEquals( Integer.valueOf( 3 ), handled.get( 1 ) );
+        assertEquals( Integer.valueOf( 4 ), handled.get( 2 ) );
+        assertEquals( 1, queue.getDroppedCount() );
+        assertEquals( 0, queue.getDepth() );
+    }
+
+    @Test( expected = RejectedExecutionException.class )
+    public void failRejectsWhenFull()
+    {
+        EventDispatchQueue queue = new EventDispatchQueue( 1, 0, OverflowPolicy.FAIL );
+        dispatch( queue, 1 );
+        dispatch( queue, 2 );
+    }
+}
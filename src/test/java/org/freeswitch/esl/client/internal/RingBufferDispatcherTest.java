@@ -0,0 +1,65 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.freeswitch.esl.client.internal.RingBufferDispatcher.WaitStrategy;
+import org.junit.Test;
+
+public class RingBufferDispatcherTest
+{
+    private static class Slot
+    {
+        int call;
+        int sequence;
+    }
+
+    @Test
+    public void slotsOfALaneAreHandledInOrderAcrossWraps() throws Exception
+    {
+        final int calls = 4;
+        final int eventsPerCall = 5000;
+        final List<List<Integer>> seen = new ArrayList<>();
+        for ( int call = 0; call < calls; call++ )
+        {
+            seen.add( new ArrayList<Integer>() );
+        }
+        final CountDownLatch done = new CountDownLatch( calls * eventsPerCall );
+
+        RingBufferDispatcher<Slot> ring = new RingBufferDispatcher<>( 16, 2, Slot::new, slot -> {
+            // each lane is only ever handled by one consumer thread
+            seen.get( slot.call ).add( slot.sequence );
+            done.countDown();
+        }, WaitStrategy.YIELD, Executors.defaultThreadFactory() );
+        ring.start();
+
+        for ( int event = 0; event < eventsPerCall; event++ )
+        {
+            for ( int call = 0; call < calls; call++ )
+            {
+                long sequence = ring.next();
+                Slot slot = ring.get( sequence );
+                slot.call = call;
+                slot.sequence = event;
+                ring.publish( sequence, call );
+            }
+        }
+
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        ring.halt();
+        for ( List<Integer> events : seen )
+        {
+            assertEquals( eventsPerCall, events.size() );
+            for ( int i = 0; i < eventsPerCall; i++ )
+            {
+                assertEquals( Integer.valueOf( i ), events.get( i ) );
+            }
+        }
+    }
+}
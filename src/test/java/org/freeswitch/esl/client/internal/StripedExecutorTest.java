@@ -0,0 +1,86 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StripedExecutorTest
+{
+    private final ExecutorService pool = Executors.newFixedThreadPool( 4 );
+
+    @After
+    public void shutdown()
+    {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void tasksWithTheSameKeyRunInOrder() throws Exception
+    {
+        final StripedExecutor executor = new StripedExecutor( 4, pool );
+        final int calls = 8;
+        final int eventsPerCall = 500;
+        final List<List<Integer>> seen = new ArrayList<>();
+        for ( int call = 0; call < calls; call++ )
+        {
+            seen.add( Collections.synchronizedList( new ArrayList<Integer>() ) );
+        }
+        final CountDownLatch done = new CountDownLatch( calls * eventsPerCall );
+
+        for ( int event = 0; event < eventsPerCall; event++ )
+        {
+            for ( int call = 0; call < calls; call++ )
+            {
+                final List<Integer> events = seen.get( call );
+                final int sequence = event;
+                executor.execute( "call-" + call, () -> {
+                    events.add( sequence );
+                    done.countDown();
+                } );
+            }
+        }
+
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        for ( List<Integer> events : seen )
+        {
+            for ( int i = 0; i < eventsPerCall; i++ )
+            {
+                assertEquals( Integer.valueOf( i ), events.get( i ) );
+            }
+        }
+    }
+
+    @Test
+    public void slowLaneDoesNotBlockOtherLanes() throws Exception
+    {
+        final StripedExecutor executor = new StripedExecutor( 2, pool );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch otherRan = new CountDownLatch( 1 );
+
+        // keys 0 and 1 hash to different lanes
+        executor.execute( 0, () -> {
+            try
+            {
+                release.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+        executor.execute( 1, otherRan::countDown );
+
+        assertTrue( otherRan.await( 5, TimeUnit.SECONDS ) );
+        release.countDown();
+    }
+}
@@ -0,0 +1,106 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest
+{
+    private static final int SESSIONS = 100;
+    private static final int CALLBACKS = 200;
+
+    private static int javaVersion()
+    {
+        String version = System.getProperty( "java.specification.version" );
+        return Integer.parseInt( version.startsWith( "1." ) ? version.substring( 2 ) : version );
+    }
+
+    @Test
+    public void availableFromJava21()
+    {
+        if ( javaVersion() >= 21 )
+        {
+            assertTrue( VirtualThreads.isAvailable() );
+        }
+        else if ( javaVersion() < 19 )
+        {
+            assertFalse( VirtualThreads.isAvailable() );
+        }
+    }
+
+    @Test
+    public void fallbackRefusesToCreateAnExecutor()
+    {
+        assumeTrue( !VirtualThreads.isAvailable() );
+        try
+        {
+            VirtualThreads.newThreadPerTaskExecutor( "esl-test-" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            assertTrue( e.getMessage().contains( "Java 21" ) );
+            return;
+        }
+        throw new AssertionError( "expected UnsupportedOperationException" );
+    }
+
+    @Test
+    public void sessionCallbacksStaySerialAndInOrder() throws Exception
+    {
+        assumeTrue( VirtualThreads.isAvailable() );
+        final ExecutorService virtualThreads = VirtualThreads.newThreadPerTaskExecutor( "esl-test-" );
+        final CountDownLatch done = new CountDownLatch( SESSIONS * CALLBACKS );
+        final List<List<Integer>> handled = new ArrayList<>();
+        final AtomicBoolean failed = new AtomicBoolean();
+        try
+        {
+            for ( int session = 0; session < SESSIONS; session++ )
+            {
+                final SerialExecutor lane = new SerialExecutor( virtualThreads );
+                final List<Integer> order = new ArrayList<>();
+                final AtomicBoolean running = new AtomicBoolean();
+                handled.add( order );
+                for ( int callback = 0; callback < CALLBACKS; callback++ )
+                {
+                    final int sequence = callback;
+                    lane.execute( () -> {
+                        if ( !running.compareAndSet( false, true )
+                            || !Thread.currentThread().getName().startsWith( "esl-test-" ) )
+                        {
+                            failed.set( true );
+                        }
+                        // block, as a handler waiting on FreeSWITCH would
+                        Thread.yield();
+                        order.add( sequence );
+                        running.set( false );
+                        done.countDown();
+                    } );
+                }
+            }
+            assertTrue( done.await( 30, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            virtualThreads.shutdown();
+        }
+
+        assertFalse( failed.get() );
+        for ( List<Integer> order : handled )
+        {
+            for ( int callback = 0; callback < CALLBACKS; callback++ )
+            {
+                assertEquals( Integer.valueOf( callback ), order.get( callback ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.freeswitch.esl.client.outbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.junit.After;
+import org.junit.Test;
+
+public class OutboundClientHandlerTest
+{
+    private static final int SESSIONS = 10000;
+    private static final int BLOCKED_SESSIONS = 200;
+    private static final int IDLE_THREADS = 2;
+
+    private OutboundChannelInitializer initializer;
+
+    @After
+    public void shutdown()
+    {
+        initializer.shutdown();
+    }
+
+    private static void receive( EmbeddedChannel channel, String frame )
+    {
+        channel.writeInbound( Unpooled.copiedBuffer( frame, StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void blockedSessionsDoNotStarveOthersAndIdleThreadsAreReclaimed() throws Exception
+    {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final CountDownLatch connected = new CountDownLatch( SESSIONS );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger blocking = new AtomicInteger();
+        final IClientHandler clientHandler = new IClientHandler()
+        {
+            @Override
+            public void onConnect( Context ctx, EslEvent event )
+            {
+                connected.countDown();
+                if ( blocking.getAndDecrement() > 0 )
+                {
+                    // a handler waiting on FreeSWITCH for the rest of the call
+                    try
+                    {
+                        release.await();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onEslEvent( Context ctx, EslEvent event )
+            {
+            }
+        };
+        // the default pool, with a keep alive short enough to watch it shrink
+        initializer = new OutboundChannelInitializer( () -> clientHandler )
+            .setIdleCallbackThreads( IDLE_THREADS, 100, TimeUnit.MILLISECONDS );
+
+        // warm up the shared pools before taking the baseline
+        simulateSession( "warm-up" );
+        final int baseline = threads.getThreadCount();
+
+        blocking.set( BLOCKED_SESSIONS );
+        for ( int session = 0; session < SESSIONS; session++ )
+        {
+            simulateSession( "job-" + session );
+        }
+
+        // every session connects while the first ones still hold their threads
+        assertTrue( connected.await( 30, TimeUnit.SECONDS ) );
+        assertTrue( threads.getThreadCount() >= baseline + BLOCKED_SESSIONS - IDLE_THREADS );
+        release.countDown();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+        while ( threads.getThreadCount() > baseline + IDLE_THREADS && System.nanoTime() < deadline )
+        {
+            Thread.sleep( 50 );
+        }
+        assertTrue( "threads grew from " + baseline + " to " + threads.getThreadCount(),
+            threads.getThreadCount() <= baseline + IDLE_THREADS );
+    }
+
+    private void simulateSession( String jobId )
+    {
+        final OutboundClientHandler handler = initializer.newClientHandler();
+        final EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8092, true ), handler );
+        channel.runPendingTasks();
+        receive( channel, "Content-Type: command/reply\nReply-Text: +OK\n\n" );
+
+        final CompletableFuture<EslEvent> job = handler.sendBackgroundApiCommand( channel, new EslCommand( "bgapi", "status" ), jobId );
+        channel.runPendingTasks();
+        receive( channel, "Content-Type: command/reply\nReply-Text: +OK event listener enabled plain\n\n" );
+        channel.runPendingTasks();
+        receive( channel, "Content-Type: command/reply\nReply-Text: +OK Job-UUID: " + jobId + "\nJob-UUID: " + jobId + "\n\n" );
+        final String event = "Job-UUID: " + jobId + "\nEvent-Name: BACKGROUND_JOB\n\n";
+        receive( channel, "Content-Length: " + event.length() + "\nContent-Type: text/event-plain\n\n" + event );
+
+        assertEquals( "BACKGROUND_JOB", job.join().getEventName() );
+        channel.close();
+    }
+}
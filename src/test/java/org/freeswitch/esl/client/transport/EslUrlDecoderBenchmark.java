@@ -0,0 +1,115 @@
+package org.freeswitch.esl.client.transport;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares {@link EslUrlDecoder} with {@link URLDecoder} over the header values of a captured
+ * CHANNEL_CREATE event.  Run with:
+ * <pre>
+ *   java org.freeswitch.esl.client.transport.EslUrlDecoderBenchmark [iterations]
+ * </pre>
+ */
+public class EslUrlDecoderBenchmark {
+
+    private static final String[] CAPTURED_HEADER_VALUES = {
+        "CHANNEL_CREATE",
+        "a5b1d6f4-6c36-4b5e-9b4f-0a0f5d1f6e0c",
+        "fs01.example.com",
+        "fs01.example.com",
+        "10.0.0.21",
+        "%3A%3A1",
+        "2016-03-14%2012%3A04%3A11",
+        "Mon,%2014%20Mar%202016%2012%3A04%3A11%20GMT",
+        "1457957051381432",
+        "switch_core_state_machine.c",
+        "switch_core_session_run",
+        "413",
+        "8",
+        "3d6b6b8e-e9d1-11e5-9b7c-3b5f2f1d6a1c",
+        "inbound",
+        "CS_INIT",
+        "CS_INIT",
+        "2",
+        "sofia/internal/1000%40example.com",
+        "3d6b6b8e-e9d1-11e5-9b7c-3b5f2f1d6a1c",
+        "%22Jos%C3%A9%20Mar%C3%ADa%22",
+        "1000",
+        "10.0.0.105",
+        "sofia/internal/sip%3A1000%4010.0.0.105%3A5060",
+        "sofia/internal/1000%40example.com",
+        "public",
+        "XML",
+        "3000",
+        "default",
+        "1457957051361432",
+        "0",
+        "false",
+        "PCMU%2CPCMA%2CG722",
+        "SIP_CALL_ID",
+        "0e2c9b1f-3c4f-4b4a-8f7e-5a0c3f0d1b2e%4010.0.0.105",
+        "Bria%203%20release%203.5.5%20stamp%2071243",
+    };
+
+    public static void main(String[] args) throws UnsupportedEncodingException {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+        final byte[][] capturedBytes = new byte[CAPTURED_HEADER_VALUES.length][];
+        for (int i = 0; i < CAPTURED_HEADER_VALUES.length; i++) {
+            capturedBytes[i] = CAPTURED_HEADER_VALUES[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        // warm up all paths before measuring
+        for (int round = 0; round < 3; round++) {
+            runUrlDecoder(iterations / 10);
+            runString(iterations / 10);
+            runBytes(capturedBytes, iterations / 10);
+        }
+
+        report("URLDecoder.decode(String, \"UTF-8\")", iterations, runUrlDecoder(iterations));
+        report("EslUrlDecoder.decode(String)", iterations, runString(iterations));
+        report("EslUrlDecoder.decode(byte[], int, int)", iterations, runBytes(capturedBytes, iterations));
+    }
+
+    private static long runUrlDecoder(int iterations) throws UnsupportedEncodingException {
+        long sink = 0;
+        final long start = System.nanoTime();
+        for (int n = 0; n < iterations; n++) {
+            sink += URLDecoder.decode(CAPTURED_HEADER_VALUES[n % CAPTURED_HEADER_VALUES.length], "UTF-8").length();
+        }
+        return finish(start, sink);
+    }
+
+    private static long runString(int iterations) {
+        long sink = 0;
+        final long start = System.nanoTime();
+        for (int n = 0; n < iterations; n++) {
+            sink += EslUrlDecoder.decode(CAPTURED_HEADER_VALUES[n % CAPTURED_HEADER_VALUES.length]).length();
+        }
+        return finish(start, sink);
+    }
+
+    private static long runBytes(byte[][] capturedBytes, int iterations) {
+        long sink = 0;
+        final long start = System.nanoTime();
+        for (int n = 0; n < iterations; n++) {
+            final byte[] value = capturedBytes[n % capturedBytes.length];
+            sink += EslUrlDecoder.decode(value, 0, value.length).length();
+        }
+        return finish(start, sink);
+    }
+
+    private static long finish(long start, long sink) {
+        final long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            // keep the results alive
+            System.out.print("");
+        }
+        return elapsed;
+    }
+
+    private static void report(String name, int iterations, long elapsedNanos) {
+        System.out.printf("%-42s %8.1f ns/value%n", name, (double) elapsedNanos / iterations);
+    }
+}
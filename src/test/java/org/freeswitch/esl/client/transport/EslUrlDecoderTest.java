@@ -0,0 +1,57 @@
+package org.freeswitch.esl.client.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class EslUrlDecoderTest
+{
+    private static final String[] VALUES = {
+        "",
+        "CHANNEL_CREATE",
+        "2008-05-02%2007%3A37%3A03",
+        "Thu,%2001%20May%202008%2023%3A37%3A03%20GMT",
+        "sofia/default/1005%20'%26park'",
+        "%22Jos%C3%A9%20Mar%C3%ADa%22%20%3Csip%3A1000%40example.com%3E",
+        "a+b+c",
+        "%E2%82%AC%20%F0%9F%93%9E",
+    };
+
+    @Test
+    public void matchesUrlDecoder() throws Exception
+    {
+        for ( String value : VALUES )
+        {
+            String expected = URLDecoder.decode( value, "UTF-8" );
+            assertEquals( expected, EslUrlDecoder.decode( value ) );
+            byte[] bytes = ( "xx" + value + "yy" ).getBytes( StandardCharsets.UTF_8 );
+            assertEquals( expected, EslUrlDecoder.decode( bytes, 2, bytes.length - 4 ) );
+        }
+    }
+
+    @Test
+    public void returnsSameInstanceWhenNothingToDecode()
+    {
+        String value = "a6f7b8c2-1b2e-4f53-9a0b-1f2e3d4c5b6a";
+        assertSame( value, EslUrlDecoder.decode( value ) );
+    }
+
+    @Test
+    public void keepsMalformedEscapes()
+    {
+        assertEquals( "100% sure", EslUrlDecoder.decode( "100%+sure" ) );
+        assertEquals( "%z1 %4", EslUrlDecoder.decode( "%z1%20%4" ) );
+    }
+
+    @Test
+    public void keepsUnescapedNonAscii()
+    {
+        assertEquals( "José María", EslUrlDecoder.decode( "José+María" ) );
+        byte[] bytes = "José+María".getBytes( StandardCharsets.UTF_8 );
+        assertEquals( "José María", EslUrlDecoder.decode( bytes, 0, bytes.length ) );
+    }
+}
@@ -0,0 +1,126 @@
+package org.freeswitch.esl.client.transport.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class EslEventTest
+{
+    private EslMessage decode( List<String> bodyLines )
+    {
+        StringBuilder body = new StringBuilder();
+        for ( String line : bodyLines )
+        {
+            body.append( line ).append( '\n' );
+        }
+        byte[] bodyBytes = body.toString().getBytes();
+
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeBytes( ( "Content-Length: " + bodyBytes.length + "\nContent-Type: text/event-plain\n\n" ).getBytes() );
+        buffer.writeBytes( bodyBytes );
+
+        EmbeddedChannel embedder = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        embedder.writeInbound( buffer );
+        embedder.finish();
+        return (EslMessage) embedder.readInbound();
+    }
+
+    private List<String> backgroundJob()
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add( "Job-UUID: 7f4db78a-17d7-11dd-b7a0-db4edd065621" );
+        lines.add( "Job-Command: originate" );
+        lines.add( "Job-Command-Arg: sofia/default/1005%20'%26park'" );
+        lines.add( "Event-Name: BACKGROUND_JOB" );
+        lines.add( "Core-UUID: 42bdf272-16e6-11dd-b7a0-db4edd065621" );
+        lines.add( "Event-Date-Local: 2008-05-02%2007%3A37%3A03" );
+        lines.add( "Event-Date-GMT: Thu,%2001%20May%202008%2023%3A37%3A03%20GMT" );
+        lines.add( "Event-Date-Timestamp: 1209685023894968" );
+        lines.add( "Content-Length: 41" );
+        lines.add( "" );
+        lines.add( "+OK 7f4de4bc-17d7-11dd-b7a0-db4edd065621" );
+        return lines;
+    }
+
+    @Test
+    public void lazyHeadersMatchEagerHeaders()
+    {
+        EslMessage message = decode( backgroundJob() );
+        EslEvent eager = new EslEvent( message, false, false );
+        EslEvent lazy = new EslEvent( message, false, true );
+        message.release();
+
+        assertEquals( "BACKGROUND_JOB", lazy.getEventName() );
+        assertEquals( "sofia/default/1005 '&park'", lazy.getEventHeaders().get( "Job-Command-Arg" ) );
+        assertEquals( 1209685023894968L, lazy.getEventDateTimestamp() );
+        assertNull( lazy.getEventHeaders().get( "Unique-ID" ) );
+        assertEquals( eager.getEventBodyLines(), lazy.getEventBodyLines() );
+        assertEquals( eager.getEventHeaders(), lazy.getEventHeaders() );
+    }
+
+    @Test
+    public void lazyHeadersLastValueWinsAndAreMutable()
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add( "Event-Name: CUSTOM" );
+        lines.add( "variable_foo: one" );
+        lines.add( "variable_foo: two" );
+        EslMessage message = decode( lines );
+        EslEvent lazy = new EslEvent( message, false, true );
+        message.release();
+
+        assertEquals( "two", lazy.getEventHeaders().get( "variable_foo" ) );
+        assertFalse( lazy.hasEventBody() );
+
+        lazy.getEventHeaders().put( "variable_bar", "three" );
+        assertTrue( lazy.getEventHeaders().containsKey( "variable_bar" ) );
+        assertEquals( "CUSTOM", lazy.getEventName() );
+    }
+
+    @Test
+    public void routingHeadersArePeekedFromTheRawFrame()
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add( "Event-Subclass: sofia%3A%3Aregister" );
+        lines.add( "Event-Name: CUSTOM" );
+        lines.add( "Core-UUID: 42bdf272-16e6-11dd-b7a0-db4edd065621" );
+        lines.add( "Unique-ID: 3d6b6b8e-e9d1-11e5-9b7c-3b5f2f1d6a1c" );
+        EslMessage message = decode( lines );
+        EventRoutingHeaders routing = EventRoutingHeaders.peek( message );
+        message.release();
+
+        assertEquals( "CUSTOM", routing.getEventName() );
+        assertEquals( "sofia::register", routing.getEventSubclass() );
+
+        message = decode( backgroundJob() );
+        routing = EventRoutingHeaders.peek( message );
+        message.release();
+        assertEquals( "BACKGROUND_JOB", routing.getEventName() );
+        assertNull( routing.getEventSubclass() );
+    }
+
+    @Test
+    public void routingPeekStopsOnceTheEventNameDecides()
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add( "Event-Name: CHANNEL_ANSWER" );
+        lines.add( "Event-Subclass: not%3A%3Areached" );
+        EslMessage message = decode( lines );
+        EventRoutingHeaders routing = EventRoutingHeaders.peek( message );
+        message.release();
+
+        assertEquals( "CHANNEL_ANSWER", routing.getEventName() );
+        assertNull( routing.getEventSubclass() );
+    }
+}
@@ -0,0 +1,64 @@
+package org.freeswitch.esl.client.transport.message;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.EslCommand;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EslCommandEncoderTest
+{
+    private EmbeddedChannel embedder;
+
+    @Before
+    public void setupTest()
+    {
+        embedder = new EmbeddedChannel( new EslCommandEncoder() );
+    }
+
+    private String encode( Object command )
+    {
+        embedder.writeOutbound( command );
+        ByteBuf encoded = (ByteBuf) embedder.readOutbound();
+        String text = encoded.toString( StandardCharsets.UTF_8 );
+        encoded.release();
+        return text;
+    }
+
+    @Test
+    public void commandTokensSkipEmptyArguments()
+    {
+        assertEquals( "api uuid_kill 1234\n\n", encode( new EslCommand( "api", "uuid_kill", "1234" ) ) );
+        assertEquals( "api status\n\n", encode( new EslCommand( "api", "status", null ) ) );
+        assertEquals( "event plain ALL\n\n", encode( new EslCommand( "event", "plain", "ALL" ) ) );
+    }
+
+    @Test
+    public void commandHeadersAndUtf8()
+    {
+        EslCommand command = new EslCommand( "bgapi", "uuid_setvar", "1234 caller José" )
+            .addHeader( "Job-UUID", "abcd" );
+        assertEquals( "bgapi uuid_setvar 1234 caller José\nJob-UUID: abcd\n\n", encode( command ) );
+    }
+
+    @Test
+    public void withHeaderLeavesTheCommandUnchanged()
+    {
+        EslCommand command = new EslCommand( "bgapi", "status" );
+        assertEquals( "bgapi status\nJob-UUID: 1\n\n", encode( command.withHeader( "Job-UUID", "1" ) ) );
+        assertEquals( "bgapi status\nJob-UUID: 2\n\n", encode( command.withHeader( "Job-UUID", "2" ) ) );
+        assertEquals( "bgapi status\n\n", encode( command ) );
+    }
+
+    @Test
+    public void sendMsgLines()
+    {
+        SendMsg msg = new SendMsg().addCallCommand( "execute" ).addExecuteAppName( "answer" );
+        assertEquals( "sendmsg\ncall-command: execute\nexecute-app-name: answer\n\n", encode( msg ) );
+    }
+}
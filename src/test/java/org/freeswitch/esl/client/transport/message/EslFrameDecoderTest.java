@@ -18,8 +18,10 @@ package org.freeswitch.esl.client.transport.message;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +29,8 @@ import java.util.List;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.IllegalReferenceCountException;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -130,6 +134,160 @@ public class EslFrameDecoderTest
         assertEquals( 17, result.getBodyLines().size() );
     }
 
+    @Test
+    public void messageSplitAcrossReads()
+    {
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 27" );
+        inputLines.add( "" );
+        inputLines.add( "+OK first line" );
+        inputLines.add( "second line" );
+
+        ByteBuf input = createInputBuffer(inputLines, true);
+
+        // deliver the frame a few bytes at a time, nothing should be emitted until the body is complete
+        while ( input.readableBytes() > 3 )
+        {
+            embedder.writeInbound( input.readSlice( 3 ).retain() );
+            assertNull( embedder.readInbound() );
+        }
+        embedder.writeInbound( input.readSlice( input.readableBytes() ).retain() );
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+        embedder.finish();
+
+        assertNotNull( result );
+        assertEquals( 27, result.getContentLength().intValue() );
+        assertEquals( 2, result.getBodyLines().size() );
+        assertEquals( "second line", result.getBodyLines().get( 1 ) );
+    }
+
+    @Test
+    public void consecutiveMessagesInOneRead()
+    {
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: command/reply" );
+        inputLines.add( "Reply-Text: +OK" );
+        inputLines.add( "" );
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 3" );
+        inputLines.add( "" );
+        inputLines.add( "+OK" );
+
+        embedder.writeInbound(createInputBuffer(inputLines, false));
+        embedder.finish();
+
+        EslMessage first = (EslMessage) embedder.readInbound();
+        EslMessage second = (EslMessage) embedder.readInbound();
+
+        assertEquals( EslHeaders.Value.COMMAND_REPLY, first.getContentType() );
+        assertEquals( EslHeaders.Value.API_RESPONSE, second.getContentType() );
+        assertEquals( "+OK", second.getBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void bodyIsRetainedSliceUntilReleased()
+    {
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 3" );
+        inputLines.add( "" );
+        inputLines.add( "+OK" );
+
+        ByteBuf input = createInputBuffer(inputLines, false);
+        embedder.writeInbound( input );
+        embedder.finish();
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+
+        // the slice keeps the receive buffer alive until the message is released
+        assertEquals( 1, result.refCnt() );
+        assertEquals( 1, input.refCnt() );
+        assertEquals( "+OK", result.getBodyLines().get( 0 ) );
+        assertTrue( result.release() );
+        assertEquals( 0, input.refCnt() );
+        // already decoded lines remain available
+        assertEquals( 1, result.getBodyLines().size() );
+        try
+        {
+            result.getRawBody();
+        }
+        catch ( IllegalReferenceCountException e )
+        {
+            return;
+        }
+        throw new AssertionError( "expected IllegalReferenceCountException" );
+    }
+
+    @Test
+    public void utf8HeadersAndBody()
+    {
+        String body = "Caller-Caller-ID-Name: José\nΑλφα";
+        byte[] bodyBytes = body.getBytes( StandardCharsets.UTF_8 );
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Reply-Text: +OK Jürgen" );
+        inputLines.add( "Content-Length: " + bodyBytes.length );
+        inputLines.add( "" );
+        inputLines.add( body );
+
+        embedder.writeInbound( createInputBuffer( inputLines, false ) );
+        embedder.finish();
+        EslMessage result = (EslMessage) embedder.readInbound();
+
+        assertEquals( "+OK Jürgen", result.getHeaderValue( EslHeaders.Name.REPLY_TEXT ) );
+        assertEquals( "Caller-Caller-ID-Name: José", result.getBodyLines().get( 0 ) );
+        assertEquals( "Αλφα", result.getBodyLines().get( 1 ) );
+    }
+
+    @Test
+    public void unknownHeadersAsBodyInOutboundMode()
+    {
+        EmbeddedChannel outbound = new EmbeddedChannel( new EslFrameDecoder( 8192, true ) );
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Event-Name: CHANNEL_DATA" );
+        inputLines.add( "content-type: command/reply" );
+        inputLines.add( "Reply-Text:   +OK  " );
+        inputLines.add( "Socket-Mode: async" );
+        inputLines.add( "Control: full" );
+        inputLines.add( "Unique-ID: 3d6b6b8e-e9d1-11e5-9b7c-3b5f2f1d6a1c" );
+        inputLines.add( "" );
+
+        outbound.writeInbound( createInputBuffer( inputLines, true ) );
+        outbound.finish();
+        EslMessage result = (EslMessage) outbound.readInbound();
+
+        assertEquals( EslHeaders.Value.COMMAND_REPLY, result.getContentType() );
+        assertEquals( "+OK", result.getHeaderValue( EslHeaders.Name.REPLY_TEXT ) );
+        assertEquals( 4, result.getHeaders().size() );
+        assertEquals( 2, result.getBodyLines().size() );
+        assertEquals( "Event-Name: CHANNEL_DATA", result.getBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void headerNamesResolveIgnoringCase()
+    {
+        for ( EslHeaders.Name name : EslHeaders.Name.values() )
+        {
+            assertEquals( name, EslHeaders.Name.fromLiteral( name.literal().toUpperCase() ) );
+            assertEquals( name, EslHeaders.Name.fromBytes( Unpooled.copiedBuffer( name.literal().toLowerCase().getBytes() ),
+                0, name.literal().length() ) );
+        }
+        assertNull( EslHeaders.Name.fromLiteral( "Content-Typo" ) );
+        assertNull( EslHeaders.Name.fromLiteral( "" ) );
+    }
+
+    @Test( expected = TooLongFrameException.class )
+    public void headerLineTooLong()
+    {
+        StringBuilder sb = new StringBuilder( "Reply-Text: " );
+        while ( sb.length() <= 64 )
+        {
+            sb.append( 'x' );
+        }
+        embedder.writeInbound( Unpooled.copiedBuffer( sb.toString().getBytes() ) );
+    }
     
     private ByteBuf createInputBuffer( List<String> inputLines, boolean terminateLastLine )
     {
@@ -138,7 +296,7 @@ public class EslFrameDecoderTest
         Iterator<String> it = inputLines.iterator();
         while ( it.hasNext() )
         {
-            buffer.writeBytes( it.next().getBytes() );
+            buffer.writeBytes( it.next().getBytes( StandardCharsets.UTF_8 ) );
             // only terminate last line if asked
             if ( it.hasNext() || terminateLastLine )
             {